@@ -24,28 +24,28 @@ public class Andromeda extends SPQRLinearOpMode {
 
         waitForStart();
 
-        if (opModeIsActive() && !isStopRequested()) {
+        if (this.isActive()) {
+
+            //Drive up to the block in one profiled move that slows down onto it
+            this.driveProfiled(7500, 1);
 
-            //Initial movement forward
-            this.drive(7000, 1);
-            this.drive(500, 0.5);
             //grab the block using the tow, wait for the tow to come down before
             this.robot.dropTow();
-            this.sleep(1000);
+            this.pause(1000);
 
             //reverse away from the blocks
             this.drive(-4000, -1);
 
             //turn right towards the top of the fi
             // 30611eld
-            this.turn(90, 1.0);
+            this.turnProfiled(90, 1.0);
 
             //drive across the line
             this.drive(15000, 1.0);
 
             //releasing the block, with a slight pause to make sure it is clear of the tow
             this.robot.raiseTow();
-            this.sleep(1000);
+            this.pause(1000);
 
             //reverse back to ensure line up.
             this.drive(-5000, -1);
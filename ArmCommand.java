@@ -0,0 +1,55 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This class runs the arm to a position and finishes once the arm motor is no longer busy or the
+ * timeout has passed. The arm keeps holding the position after the command ends.
+ *
+ * @author Arkin Solomon
+ */
+public class ArmCommand implements Command {
+
+    private final HardwareSPQR robot;
+    private final int target;
+    private final double power;
+    private final long timeout;
+    private long deadline = 0;
+    private boolean finished = false;
+
+    /**
+     * @param robot        The robot to move the arm of.
+     * @param target       The position of the arm in encoder units.
+     * @param power        A double between 0 and 1.0 which is the power to move the arm with.
+     * @param milliseconds The longest time to wait for the arm.
+     */
+    public ArmCommand(HardwareSPQR robot, int target, double power, long milliseconds) {
+        this.robot = robot;
+        this.target = target;
+        this.power = power;
+        this.timeout = milliseconds * 1000000;
+    }
+
+    @Override
+    public void start(long now) {
+        this.robot.armMotor.setTargetPosition(this.target);
+        this.robot.armMotor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        this.robot.armMotor.setPower(this.power);
+        this.deadline = now + this.timeout;
+        this.finished = false;
+    }
+
+    @Override
+    public void update(long now) {
+        this.finished = !this.robot.snapshot.isArmBusy() || now >= this.deadline;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    @Override
+    public void end() {
+    }
+}
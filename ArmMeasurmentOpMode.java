@@ -22,6 +22,9 @@ public class ArmMeasurmentOpMode extends OpMode {
 
         //Initialize hardware
         this.robot.init(hardwareMap);
+
+        //The balancer is moved in very small steps, so don't drop any changed writes
+        this.robot.setWriteEpsilon(0);
     }
 
     @Override
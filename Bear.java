@@ -25,42 +25,33 @@ public class Bear extends SPQRLinearOpMode {
 
         waitForStart();
 
-        if (opModeIsActive() && !isStopRequested()) {
+        if (this.isActive()) {
 
-            //Initial movement forward
-            this.drive(7000, 1);
-            //slow the robot down and move right up to the block
-            this.drive(900,0.5);
-
-            //grab the block using the tow, wait for the tow to come down before
-            this.robot.dropTow();
-            this.sleep(1000);
+            //Drive up to the block in one profiled move, dropping the tow onto the block over the
+            //end of the approach and waiting for it to come down before reversing
+            DriveCommand blockApproach = this.driveProfiledCommand(7900, 1);
+            this.run(new ParallelCommand(blockApproach, new SequentialCommand(blockApproach.untilProgress(0.97), TowCommand.drop(this.robot))));
 
             //reverse away from the blocks
             this.drive(-2500, -1);
 
             //turn right towards the top of the field
-            this.turn(-90, 1.0);
+            this.turnProfiled(-90, 1.0);
 
             //drive across the line
             this.drive(16000, 1.0);
 
             //turn in preparation to release the block
-            this.turn(90, 1.0);
-
-            //releasing the block, with a slight pause to make sure it is clear of the tow
-            this.robot.raiseTow();
-            this.sleep(100);
-
-            //strafe to the right, all the way to the top of the field
-            this.strafe(Dir.RIGHT, 11000, 1);
+            this.turnProfiled(90, 1.0);
 
-            //drive forward up to the foundation
-            this.drive(2850, 1);
+            //releasing the block, with a slight pause to make sure it is clear of the tow, then strafe
+            //to the right, all the way to the top of the field while the tow is still rising
+            this.run(TowCommand.raise(this.robot), new SequentialCommand(new WaitCommand(100), this.strafeCommand(Dir.RIGHT, 11000, 1)));
 
-            //grab the foundation and wait for it to settle
-            this.robot.dropTow();
-            this.sleep(900);
+            //drive forward up to the foundation, dropping the tow over the last part of the approach
+            //so that it lands on the foundation as the robot reaches it
+            DriveCommand foundationApproach = this.driveCommand(2850, 1);
+            this.run(new ParallelCommand(foundationApproach, new SequentialCommand(foundationApproach.untilProgress(0.6), TowCommand.drop(this.robot))));
 
             //drive back slowly pulling the foundation into the building site
             this.drive(-7100, -0.5);
@@ -0,0 +1,141 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import java.util.ArrayList;
+
+/**
+ * This class drives a chain of drive and strafe segments without stopping between them. Each
+ * segment follows its own motion profile, and the next segment starts speeding up while the one
+ * before it is slowing down, so the robot rounds the corner between them instead of braking to a
+ * stop. The wheel targets of each segment come from the mecanum kinematics of drive() and strafe(),
+ * which are linear, so the overlapping segments are mixed by adding their wheel positions and
+ * velocities together.
+ *
+ * Each wheel is corrected towards the sum of the segment positions like in ProfiledDriveCommand,
+ * so the robot still ends on the sum of the segment targets.
+ *
+ * @author Arkin Solomon
+ */
+public class BlendedDriveCommand implements Command {
+
+    //Power per encoder unit per second, equal to one over the top speed of the motors
+    public double kV = 1.0 / 2600;
+
+    //Power per encoder unit per second squared
+    public double kA = 0.00002;
+
+    //Power per encoder unit of error from the blended profile
+    public double kP = 0.004;
+
+    //Largest error in encoder units that counts as being at the target
+    public int tolerance = 10;
+
+    //Time to keep correcting after the last segment ends before giving up, in nanoseconds
+    public long settleTime = 500000000;
+
+    private final SPQRLinearOpMode opMode;
+    private final HardwareSPQR robot;
+    private final ArrayList<int[]> targets = new ArrayList<int[]>();
+    private final ArrayList<Trajectory> profiles = new ArrayList<Trajectory>();
+    private final double[] powers = new double[4];
+    private DcMotor.ZeroPowerBehavior previousBehavior = null;
+
+    //Time each segment starts after the start of the command in seconds
+    private double[] startTimes = new double[0];
+    private double duration = 0;
+    private long startTime = 0;
+    private boolean finished = false;
+
+    /**
+     * @param opMode The opmode that keeps the total encoder counts of the robot.
+     */
+    public BlendedDriveCommand(SPQRLinearOpMode opMode) {
+        this.opMode = opMode;
+        this.robot = opMode.robot;
+    }
+
+    /**
+     * This method adds a segment to the end of the chain. Segments can't be added once the command
+     * has started.
+     *
+     * @param targets The target position of each drive motor in encoder units, in the order of the
+     *                hardware snapshot.
+     * @param profile The profile of the largest target.
+     */
+    public void add(int[] targets, Trajectory profile) {
+        if (profile.getDistance() == 0) return;
+        this.targets.add(targets);
+        this.profiles.add(profile);
+    }
+
+    /**
+     * @return The amount of segments in the chain.
+     */
+    public int size() {
+        return this.profiles.size();
+    }
+
+    @Override
+    public void start(long now) {
+        this.previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
+        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        this.opMode.resetEncoders(DcMotor.RunMode.RUN_USING_ENCODER);
+        this.robot.setPowers(0);
+
+        //Each segment speeds up over the same time that the one before it slows down
+        this.startTimes = new double[this.profiles.size()];
+        this.duration = 0;
+        for (int k = 0; k < this.profiles.size(); k++) {
+            Trajectory profile = this.profiles.get(k);
+            if (k > 0) {
+                Trajectory previous = this.profiles.get(k - 1);
+                double overlap = Math.min(previous.getAccelerationTime(), profile.getAccelerationTime());
+                this.startTimes[k] = this.startTimes[k - 1] + previous.getDuration() - overlap;
+            }
+            this.duration = Math.max(this.duration, this.startTimes[k] + profile.getDuration());
+        }
+        this.startTime = now;
+        this.finished = this.profiles.isEmpty();
+    }
+
+    @Override
+    public void update(long now) {
+        double t = (now - this.startTime) / 1e9;
+        double largestError = 0;
+        for (int i = 0; i < 4; i++) {
+            double position = 0;
+            double feedForward = 0;
+            for (int k = 0; k < this.profiles.size(); k++) {
+                double segmentTime = t - this.startTimes[k];
+                if (segmentTime < 0) break;
+                Trajectory profile = this.profiles.get(k);
+                double scale = this.targets.get(k)[i] / profile.getDistance();
+                position += scale * profile.getPosition(segmentTime);
+                feedForward += scale * (this.kV * profile.getVelocity(segmentTime) + this.kA * profile.getAcceleration(segmentTime));
+            }
+            double error = position - this.robot.snapshot.getPosition(i);
+            largestError = Math.max(largestError, Math.abs(error));
+            this.powers[i] = Math.max(-1, Math.min(1, feedForward + this.kP * error));
+        }
+        this.robot.leftFrontDrive.setPower(this.powers[HardwareSnapshot.LEFT_FRONT]);
+        this.robot.rightFrontDrive.setPower(this.powers[HardwareSnapshot.RIGHT_FRONT]);
+        this.robot.leftBackDrive.setPower(this.powers[HardwareSnapshot.LEFT_BACK]);
+        this.robot.rightBackDrive.setPower(this.powers[HardwareSnapshot.RIGHT_BACK]);
+
+        //Finished once the last segment is over and every wheel is on its target
+        long ended = now - this.startTime - (long) (this.duration * 1e9);
+        this.finished = ended >= 0 && (largestError <= this.tolerance || ended >= this.settleTime);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    @Override
+    public void end() {
+        this.robot.setPowers(0);
+        this.robot.setDriveZeroPowerBehavior(this.previousBehavior);
+    }
+}
@@ -0,0 +1,243 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This class sits in front of a motor and drops writes that are equal to the last value written to
+ * the hardware. While writes are held, power and target position writes are buffered and sent
+ * together when flush() is called at the end of the loop.
+ *
+ * @author Arkin Solomon
+ */
+public class BufferedMotor implements SPQRMotor {
+
+    private final SPQRMotor motor;
+    private final String name;
+
+    //Largest change in power that is still considered the same value
+    private double epsilon = 0.001;
+
+    //True if power and target writes should wait for flush()
+    private boolean holding = false;
+
+    //Last values written to the hardware
+    private double committedPower = Double.NaN;
+    private int committedTarget = 0;
+    private boolean targetCommitted = false;
+    private DcMotor.RunMode committedMode = null;
+    private DcMotor.ZeroPowerBehavior committedBehavior = null;
+
+    //Values waiting for flush()
+    private double pendingPower = 0;
+    private boolean hasPendingPower = false;
+    private int pendingTarget = 0;
+    private boolean hasPendingTarget = false;
+
+    //Write counters
+    private long issuedWrites = 0;
+    private long suppressedWrites = 0;
+
+    /**
+     * @param motor The motor to write to.
+     * @param name  The name of the motor in the hardware map, used for telemetry.
+     */
+    public BufferedMotor(SPQRMotor motor, String name) {
+        this.motor = motor;
+        this.name = name;
+    }
+
+    /**
+     * This method sets the power of the motor. The write is dropped if it is within epsilon of the
+     * last power written to the hardware.
+     *
+     * @param power A double between -1.0 and 1.0 which is the power of the motor.
+     */
+    @Override
+    public void setPower(double power) {
+        if (this.hasPendingPower) this.suppressedWrites++;
+        this.pendingPower = power;
+        this.hasPendingPower = true;
+        if (!this.holding) this.flushPower();
+    }
+
+    /**
+     * This method sets the target position of the motor. The write is dropped if it is the same as
+     * the last target written to the hardware.
+     *
+     * @param target The target position in encoder units.
+     */
+    @Override
+    public void setTargetPosition(int target) {
+        if (this.hasPendingTarget) this.suppressedWrites++;
+        this.pendingTarget = target;
+        this.hasPendingTarget = true;
+        if (!this.holding) this.flushTarget();
+    }
+
+    /**
+     * This method sets the run mode of the motor. Mode changes are never held because the order of
+     * a mode change relative to the target matters, so any held target is written first. Resetting
+     * the encoder is always written.
+     *
+     * @param mode The run mode of the motor.
+     */
+    @Override
+    public void setMode(DcMotor.RunMode mode) {
+        this.flushTarget();
+        if (mode != DcMotor.RunMode.STOP_AND_RESET_ENCODER && mode == this.committedMode) {
+            this.suppressedWrites++;
+            return;
+        }
+        this.motor.setMode(mode);
+        this.committedMode = mode;
+        this.issuedWrites++;
+
+        //The controller may change the power when the mode changes, so the next power must be sent
+        this.committedPower = Double.NaN;
+    }
+
+    /**
+     * This method sets the zero power behavior of the motor, dropping the write if it has not
+     * changed.
+     *
+     * @param behavior A ZeroPowerBehavior enumeration (Under DcMotor).
+     */
+    @Override
+    public void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior) {
+        if (behavior == this.committedBehavior) {
+            this.suppressedWrites++;
+            return;
+        }
+        this.motor.setZeroPowerBehavior(behavior);
+        this.committedBehavior = behavior;
+        this.issuedWrites++;
+    }
+
+    /**
+     * This method writes all held values to the hardware and stops holding writes.
+     */
+    public void flush() {
+        this.flushTarget();
+        this.flushPower();
+        this.holding = false;
+    }
+
+    /**
+     * This method starts holding power and target writes until flush() is called.
+     */
+    void holdWrites() {
+        this.holding = true;
+    }
+
+    private void flushPower() {
+        if (!this.hasPendingPower) return;
+        this.hasPendingPower = false;
+        if (Math.abs(this.pendingPower - this.committedPower) <= this.epsilon) {
+            this.suppressedWrites++;
+            return;
+        }
+        this.motor.setPower(this.pendingPower);
+        this.committedPower = this.pendingPower;
+        this.issuedWrites++;
+    }
+
+    private void flushTarget() {
+        if (!this.hasPendingTarget) return;
+        this.hasPendingTarget = false;
+        if (this.targetCommitted && this.pendingTarget == this.committedTarget) {
+            this.suppressedWrites++;
+            return;
+        }
+        this.motor.setTargetPosition(this.pendingTarget);
+        this.committedTarget = this.pendingTarget;
+        this.targetCommitted = true;
+        this.issuedWrites++;
+    }
+
+    /* Reads */
+
+    /**
+     * This method returns the last power given to the motor, including a held power.
+     *
+     * @return The power of the motor.
+     */
+    @Override
+    public double getPower() {
+        if (this.hasPendingPower) return this.pendingPower;
+        return this.motor.getPower();
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return this.motor.getCurrentPosition();
+    }
+
+    /**
+     * This method returns the last target position given to the motor, including a held target.
+     *
+     * @return The target position in encoder units.
+     */
+    @Override
+    public int getTargetPosition() {
+        if (this.hasPendingTarget) return this.pendingTarget;
+        return this.motor.getTargetPosition();
+    }
+
+    @Override
+    public double getVelocity() {
+        return this.motor.getVelocity();
+    }
+
+    @Override
+    public boolean isBusy() {
+        return this.motor.isBusy();
+    }
+
+    @Override
+    public DcMotor.RunMode getMode() {
+        return this.motor.getMode();
+    }
+
+    @Override
+    public DcMotor.ZeroPowerBehavior getZeroPowerBehavior() {
+        return this.motor.getZeroPowerBehavior();
+    }
+
+    /* Configuration */
+
+    @Override
+    public void setDirection(DcMotor.Direction direction) {
+        this.motor.setDirection(direction);
+    }
+
+    @Override
+    public void setTargetPositionTolerance(int tolerance) {
+        this.motor.setTargetPositionTolerance(tolerance);
+    }
+
+    /**
+     * @param epsilon The largest change in power that is dropped as unchanged.
+     */
+    public void setEpsilon(double epsilon) {
+        this.epsilon = Math.abs(epsilon);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return The amount of writes that were sent to the hardware.
+     */
+    public long getIssuedWrites() {
+        return this.issuedWrites;
+    }
+
+    /**
+     * @return The amount of writes that were dropped because the value had not changed or was
+     * replaced before being flushed.
+     */
+    public long getSuppressedWrites() {
+        return this.suppressedWrites;
+    }
+}
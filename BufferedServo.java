@@ -0,0 +1,112 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class sits in front of a servo and drops position writes that are within epsilon of the last
+ * position written to the hardware. While writes are held, the position is buffered and sent when
+ * flush() is called at the end of the loop.
+ *
+ * @author Arkin Solomon
+ */
+public class BufferedServo implements SPQRServo {
+
+    private final SPQRServo servo;
+    private final String name;
+
+    //Largest change in position that is still considered the same value
+    private double epsilon = 0.001;
+
+    //True if writes should wait for flush()
+    private boolean holding = false;
+
+    private double committedPosition = Double.NaN;
+    private double pendingPosition = 0;
+    private boolean hasPendingPosition = false;
+
+    //Write counters
+    private long issuedWrites = 0;
+    private long suppressedWrites = 0;
+
+    /**
+     * @param servo The servo to write to.
+     * @param name  The name of the servo in the hardware map, used for telemetry.
+     */
+    public BufferedServo(SPQRServo servo, String name) {
+        this.servo = servo;
+        this.name = name;
+    }
+
+    /**
+     * This method sets the position of the servo. The write is dropped if it is within epsilon of
+     * the last position written to the hardware.
+     *
+     * @param position A double which is the position of the servo.
+     */
+    @Override
+    public void setPosition(double position) {
+        if (this.hasPendingPosition) this.suppressedWrites++;
+        this.pendingPosition = position;
+        this.hasPendingPosition = true;
+        if (!this.holding) this.flush();
+    }
+
+    /**
+     * This method returns the last position given to the servo, including a held position.
+     *
+     * @return The position of the servo.
+     */
+    @Override
+    public double getPosition() {
+        if (this.hasPendingPosition) return this.pendingPosition;
+        if (!Double.isNaN(this.committedPosition)) return this.committedPosition;
+        return this.servo.getPosition();
+    }
+
+    /**
+     * This method writes a held position to the hardware and stops holding writes.
+     */
+    public void flush() {
+        this.holding = false;
+        if (!this.hasPendingPosition) return;
+        this.hasPendingPosition = false;
+        if (Math.abs(this.pendingPosition - this.committedPosition) <= this.epsilon) {
+            this.suppressedWrites++;
+            return;
+        }
+        this.servo.setPosition(this.pendingPosition);
+        this.committedPosition = this.pendingPosition;
+        this.issuedWrites++;
+    }
+
+    /**
+     * This method starts holding writes until flush() is called.
+     */
+    void holdWrites() {
+        this.holding = true;
+    }
+
+    /**
+     * @param epsilon The largest change in position that is dropped as unchanged.
+     */
+    public void setEpsilon(double epsilon) {
+        this.epsilon = Math.abs(epsilon);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return The amount of writes that were sent to the hardware.
+     */
+    public long getIssuedWrites() {
+        return this.issuedWrites;
+    }
+
+    /**
+     * @return The amount of writes that were dropped because the value had not changed or was
+     * replaced before being flushed.
+     */
+    public long getSuppressedWrites() {
+        return this.suppressedWrites;
+    }
+}
@@ -0,0 +1,138 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class reads a color sensor on its own thread, so that control loops never wait on I2C for a
+ * color. Every channel is read in one transaction and published together as a sample, so the red,
+ * green and blue of a sample are always from the same measurement. A sample is stamped with the
+ * middle of the measurement it came from instead of when it was read. In the simulator the control
+ * loop samples it instead so that it follows the simulated time.
+ *
+ * @author Arkin Solomon
+ */
+public class ColorSensorPoller {
+
+    /**
+     * This class is one reading of every channel of the sensor. It is never changed after it is
+     * published.
+     */
+    public static class Sample {
+        public final int red;
+        public final int green;
+        public final int blue;
+        public final int proximity;
+
+        //Time of the middle of the measurement in nanoseconds, from System.nanoTime()
+        public final long time;
+
+        Sample(int red, int green, int blue, int proximity, long time) {
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+            this.proximity = proximity;
+            this.time = time;
+        }
+    }
+
+    private final SPQRColorSensor sensor;
+
+    //State of the sampling thread
+    private final int[] values = new int[4];
+    private volatile long latency = 0;
+
+    //Newest sample, read by any thread
+    private volatile Sample sample = new Sample(0, 0, 0, 0, 0);
+
+    private ScheduledExecutorService executor = null;
+    private Thread owner = null;
+
+    /**
+     * @param sensor The color sensor to read.
+     */
+    public ColorSensorPoller(SPQRColorSensor sensor) {
+        this.sensor = sensor;
+    }
+
+    /**
+     * This method sets how the sensor measures. It should be called before the sensor is started.
+     *
+     * @param gain              The gain of the light sensor, 1, 3, 6, 9 or 18.
+     * @param integrationMillis The integration time in milliseconds.
+     */
+    public void configure(int gain, int integrationMillis) {
+        this.latency = this.sensor.configure(gain, integrationMillis);
+    }
+
+    /**
+     * This method samples the sensor on a background thread. Sampling stops by itself once the
+     * thread that called this method ends.
+     *
+     * @param rate The amount of times per second to read the sensor, which doesn't need to be
+     *             faster than the sensor measures.
+     */
+    public synchronized void start(double rate) {
+        if (this.executor != null) return;
+        this.owner = Thread.currentThread();
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ColorSensorPoller");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = (long) (1000000000 / rate);
+        this.executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, 0, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * This method stops sampling.
+     */
+    public synchronized void stop() {
+        if (this.executor == null) return;
+        this.executor.shutdown();
+        this.executor = null;
+    }
+
+    /**
+     * This method reads the sensor once and publishes the sample. This runs on the sampling thread
+     * only, unless the poller wasn't started.
+     */
+    void sample() {
+        if (this.owner != null && !this.owner.isAlive()) {
+            this.stop();
+            return;
+        }
+        try {
+            this.sensor.read(this.values);
+        } catch (RuntimeException e) {
+            return;
+        }
+
+        //A reading that hasn't changed keeps the time it was first measured, and nothing is
+        //allocated for it
+        Sample last = this.sample;
+        if (this.values[0] == last.red && this.values[1] == last.green && this.values[2] == last.blue && this.values[3] == last.proximity && last.time != 0) return;
+        long time = System.nanoTime() - this.latency;
+        this.sample = new Sample(this.values[0], this.values[1], this.values[2], this.values[3], time);
+    }
+
+    /**
+     * This method returns the newest sample without waiting on the sensor. The same sample is
+     * returned until the sensor reads something different, which can be checked with its time.
+     *
+     * @return The newest sample.
+     */
+    public Sample getSample() {
+        return this.sample;
+    }
+}
@@ -0,0 +1,36 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This interface is an action of the robot that takes time, such as a drive segment or a move of
+ * the tow. Commands don't block: they are ticked from one control loop by a CommandScheduler, so
+ * several of them can move the robot at once. Reads should be taken from the hardware snapshot,
+ * which is refreshed before each tick.
+ *
+ * @author Arkin Solomon
+ */
+public interface Command {
+
+    /**
+     * This method is called once on the first tick of the command to write its first values.
+     *
+     * @param now The time of the tick in nanoseconds.
+     */
+    void start(long now);
+
+    /**
+     * This method is called on every tick after the first until the command is finished.
+     *
+     * @param now The time of the tick in nanoseconds.
+     */
+    void update(long now);
+
+    /**
+     * @return True once the command has nothing left to do. This is checked after each update.
+     */
+    boolean isFinished();
+
+    /**
+     * This method is called once when the command finishes or is cancelled.
+     */
+    void end();
+}
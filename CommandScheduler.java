@@ -0,0 +1,69 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.ArrayList;
+
+/**
+ * This class runs commands together from one control loop. Each tick starts the commands that were
+ * scheduled since the last tick and updates the rest, ending the ones that are finished. A command
+ * is only checked for being finished on the tick after it started, once the hardware has been read
+ * again.
+ *
+ * @author Arkin Solomon
+ */
+public class CommandScheduler {
+
+    private final ArrayList<Command> running = new ArrayList<Command>();
+    private final ArrayList<Command> starting = new ArrayList<Command>();
+
+    /**
+     * This method adds a command to start on the next tick.
+     *
+     * @param command The command to run.
+     */
+    public void schedule(Command command) {
+        this.starting.add(command);
+    }
+
+    /**
+     * This method updates every running command and then starts every scheduled command. Writes
+     * should be held while ticking and flushed after.
+     *
+     * @param now The time of the tick in nanoseconds.
+     */
+    public void tick(long now) {
+        for (int i = 0; i < this.running.size(); i++) {
+            Command command = this.running.get(i);
+            command.update(now);
+            if (command.isFinished()) {
+                command.end();
+                this.running.remove(i);
+                i--;
+            }
+        }
+        for (int i = 0; i < this.starting.size(); i++) {
+            Command command = this.starting.get(i);
+            command.start(now);
+            this.running.add(command);
+        }
+        this.starting.clear();
+    }
+
+    /**
+     * This method ends every command without waiting for it to finish, such as when the opmode is
+     * stopped.
+     */
+    public void cancelAll() {
+        for (int i = 0; i < this.running.size(); i++) {
+            this.running.get(i).end();
+        }
+        this.running.clear();
+        this.starting.clear();
+    }
+
+    /**
+     * @return True if no commands are running or waiting to start.
+     */
+    public boolean isIdle() {
+        return this.running.isEmpty() && this.starting.isEmpty();
+    }
+}
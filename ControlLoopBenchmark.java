@@ -0,0 +1,276 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+
+import static org.firstinspires.ftc.robotcore.external.navigation.AngleUnit.DEGREES;
+import static org.firstinspires.ftc.robotcore.external.navigation.AxesOrder.XYZ;
+import static org.firstinspires.ftc.robotcore.external.navigation.AxesReference.EXTRINSIC;
+
+/**
+ * This class measures the cost of the hot paths of the control loops on the desktop. Each case runs
+ * against the simulator, which can add a busy wait to every motor call to stand in for the latency
+ * of the hub. The throughput and the amount of memory allocated per call are printed for each case,
+ * so that a change that makes a loop slower or makes it allocate shows up before an event.
+ *
+ * Run the main method with the motor latencies to test in microseconds, for example "0 100 2000".
+ * Memory allocation is measured with the thread allocation counter of the desktop JVM and is shown
+ * as n/a when it isn't available.
+ *
+ * @author Arkin Solomon
+ */
+public class ControlLoopBenchmark {
+
+    //Time that each case is run for before and while being measured, in nanoseconds
+    public long warmupTime = 1000000000L;
+    public long measureTime = 3000000000L;
+
+    //Amount of calls between reads of the clock
+    public int batchSize = 100;
+
+    //Results are added to this so the JIT can't remove the calls
+    private static volatile double sink = 0;
+
+    //Thread allocation counter, null if the JVM doesn't have one
+    private static Object threadBean = null;
+    private static Method allocatedBytes = null;
+
+    static {
+        try {
+            threadBean = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+            allocatedBytes = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+        } catch (Exception e) {
+            threadBean = null;
+            allocatedBytes = null;
+        }
+    }
+
+    /**
+     * This class is the measurement of one case.
+     */
+    public static class Result {
+        public final String name;
+        public final double opsPerSecond;
+        public final double nanosPerOp;
+
+        //Bytes allocated by each call, negative if it couldn't be measured
+        public final double bytesPerOp;
+
+        Result(String name, double opsPerSecond, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            String bytes = this.bytesPerOp < 0 ? "n/a" : String.format("%.1f", this.bytesPerOp);
+            return String.format("%-28s %14.0f ops/s %12.0f ns/op %10s B/op", this.name, this.opsPerSecond, this.nanosPerOp, bytes);
+        }
+    }
+
+    /**
+     * This class is an autonomous opmode that does nothing, used to call the loops of
+     * SPQRLinearOpMode.
+     */
+    static class Fixture extends SPQRLinearOpMode {
+
+        @Override
+        public void runOpMode() {
+        }
+    }
+
+    /**
+     * This method warms up a case and then measures it.
+     *
+     * @param name      The name of the case.
+     * @param operation One call of the code being measured.
+     * @return The measurement of the case.
+     */
+    public Result measure(String name, Runnable operation) {
+        this.runFor(operation, this.warmupTime);
+        long bytesStart = threadAllocatedBytes();
+        long start = System.nanoTime();
+        long ops = this.runFor(operation, this.measureTime);
+        long elapsed = System.nanoTime() - start;
+        long bytesEnd = threadAllocatedBytes();
+        double bytesPerOp = bytesStart < 0 || bytesEnd < 0 ? -1 : (double) (bytesEnd - bytesStart) / ops;
+        return new Result(name, ops * 1e9 / elapsed, (double) elapsed / ops, bytesPerOp);
+    }
+
+    private long runFor(Runnable operation, long time) {
+        long end = System.nanoTime() + time;
+        long ops = 0;
+        do {
+            for (int i = 0; i < this.batchSize; i++) {
+                operation.run();
+            }
+            ops += this.batchSize;
+        } while (System.nanoTime() < end);
+        return ops;
+    }
+
+    /**
+     * @return The amount of bytes allocated by this thread, or -1 if it can't be read.
+     */
+    private static long threadAllocatedBytes() {
+        if (allocatedBytes == null) return -1;
+        try {
+            return (Long) allocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * This method measures every case with the given motor latency.
+     *
+     * @param latency The time each motor call takes in nanoseconds.
+     * @return The measurement of each case.
+     */
+    public Result[] run(long latency) {
+        ArrayList<Result> results = new ArrayList<Result>();
+        results.add(this.measure("waitForDrives iteration", driveLoop(latency)));
+        results.add(this.measure("MainOpMode.loop", teleOpLoop(latency)));
+        results.add(this.measure("stopAtTape color check", tapeCheck(latency)));
+        results.add(this.measure("getServoPosition", servoPosition()));
+        results.add(this.measure("checkVuforiaPosistion", vuforiaCheck()));
+        return results.toArray(new Result[0]);
+    }
+
+    /**
+     * This method creates one iteration of the loop in drive(), strafe() and turn() while the drive
+     * motors are busy, which checks drivesBusy(), publishes the telemetry and refreshes the
+     * hardware snapshot.
+     */
+    static Runnable driveLoop(long latency) {
+        MecanumSimulator simulator = new MecanumSimulator();
+        simulator.setLatency(latency);
+        final Fixture opMode = new Fixture();
+
+        //Sample the IMUs and the color sensor in the loop, as DesktopRuntime does, so that no
+        //background thread calls into the simulator
+        opMode.robot.headingRate = 0;
+        opMode.robot.colorRate = 0;
+        opMode.robot.init(simulator);
+        opMode.addTelemetrySlots(new TelemetryPublisher(null));
+
+        //The simulator isn't stepped, so the motors stay busy
+        opMode.robot.setDriveTargetPosition(-100000);
+        opMode.robot.setDriveMode(DcMotor.RunMode.RUN_TO_POSITION);
+        opMode.robot.setPowers(0.5);
+        opMode.robot.refresh();
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (opMode.drivesBusy()) opMode.loopUpdate();
+            }
+        };
+    }
+
+    /**
+     * This method creates one loop of the teleop with the driver holding the sticks forward.
+     */
+    static Runnable teleOpLoop(long latency) {
+        MecanumSimulator simulator = new MecanumSimulator();
+        simulator.setLatency(latency);
+        final MainOpMode opMode = new MainOpMode();
+        opMode.devices = simulator;
+        opMode.gamepad1 = new Gamepad();
+        opMode.gamepad2 = new Gamepad();
+        opMode.init();
+        opMode.addTelemetrySlots(new TelemetryPublisher(null));
+        opMode.gamepad1.left_stick_y = -0.5f;
+        opMode.gamepad1.right_stick_y = -0.5f;
+        return new Runnable() {
+            @Override
+            public void run() {
+                opMode.loop();
+            }
+        };
+    }
+
+    /**
+     * This method creates one read and classification of the color sensor in stopAtTape(), which
+     * takes the newest sample of the poller.
+     */
+    static Runnable tapeCheck(long latency) {
+        MecanumSimulator simulator = new MecanumSimulator();
+        simulator.setLatency(latency);
+        final Fixture opMode = new Fixture();
+        opMode.robot.colorRate = 0;
+        opMode.robot.init(simulator);
+        opMode.robot.lineParkSensor.enableLed(true);
+        simulator.step(0.001);
+        opMode.robot.refresh();
+        final LineDetector detector = new LineDetector(TapeColors.red, 0.05, 178);
+        return new Runnable() {
+            @Override
+            public void run() {
+                ColorSensorPoller.Sample sample = opMode.robot.colorPoller.getSample();
+                if (detector.isTape(sample.red, sample.green, sample.blue)) sink++;
+            }
+        };
+    }
+
+    /**
+     * This method creates one calculation of the arm balancer position over the range of the arm.
+     */
+    static Runnable servoPosition() {
+        return new Runnable() {
+            private int encoderPosition = 0;
+
+            @Override
+            public void run() {
+                this.encoderPosition = (this.encoderPosition + 7) % 1200;
+                sink += HardwareSPQR.getServoPosition(-this.encoderPosition);
+            }
+        };
+    }
+
+    /**
+     * This method creates one position check of the Vuforia navigation with a fixed last location
+     * and no visible targets.
+     */
+    static Runnable vuforiaCheck() {
+        final VuforiaSkyStoneNavigation navigation = new VuforiaSkyStoneNavigation();
+        navigation.allTrackables = new ArrayList<VuforiaTrackable>();
+        navigation.tracker = new VuforiaPoseTracker(null, navigation.allTrackables);
+        navigation.tracker.setLocation(OpenGLMatrix.translation(600, -900, 150).multiplied(Orientation.getRotationMatrix(EXTRINSIC, XYZ, DEGREES, 0, 0, 30)), null, System.nanoTime());
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (navigation.checkVuforiaPosistion("position", 0, 0, 0, 100)) sink++;
+            }
+        };
+    }
+
+    /**
+     * This method runs every case at each motor latency given in microseconds, or at 0 and 100
+     * microseconds if none are given, and prints the results.
+     */
+    public static void main(String[] args) {
+        long[] latencies = {0, 100};
+        if (args.length > 0) {
+            latencies = new long[args.length];
+            for (int i = 0; i < args.length; i++) {
+                latencies[i] = Long.parseLong(args[i]);
+            }
+        }
+        ControlLoopBenchmark benchmark = new ControlLoopBenchmark();
+        for (long latency : latencies) {
+            System.out.println("Motor latency " + latency + " us");
+            for (Result result : benchmark.run(latency * 1000)) {
+                System.out.println("  " + result);
+            }
+        }
+    }
+}
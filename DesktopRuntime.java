@@ -0,0 +1,209 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import java.io.File;
+
+/**
+ * This class runs opmodes on a desktop JVM against the simulator. It uses a virtual clock, so
+ * sleeping and waiting on the drive motors in a routine take no real time, and whole match scripts
+ * can be run in milliseconds. Autonomous opmodes are stopped after 30 seconds of simulated time and
+ * the teleop after 2 minutes, the same as in a match.
+ *
+ * @author Arkin Solomon
+ */
+public class DesktopRuntime implements OpModeRuntime {
+
+    //Length of the match periods in milliseconds
+    public static final long autonomousMillis = 30000;
+    public static final long teleOpMillis = 120000;
+
+    //Simulated time of one iteration of a control loop in nanoseconds
+    public long loopPeriod = 5000000;
+
+    //Largest amount of time the simulator is moved forward at once in nanoseconds
+    public long stepPeriod = 1000000;
+
+    private final MecanumSimulator simulator;
+    private final VirtualClock clock = new VirtualClock();
+
+    private boolean started = false;
+    private long window = autonomousMillis * 1000000;
+    private long startTime = 0;
+
+    /**
+     * This class is what happened when an opmode was run.
+     */
+    public static class Result {
+
+        //Simulated and real time that the opmode ran for in milliseconds
+        public final double simulatedMillis;
+        public final double wallMillis;
+
+        //True if the opmode finished before the end of the period
+        public final boolean finished;
+
+        //Where the robot ended in millimeters and radians
+        public final double x;
+        public final double y;
+        public final double heading;
+
+        Result(double simulatedMillis, double wallMillis, boolean finished, double x, double y, double heading) {
+            this.simulatedMillis = simulatedMillis;
+            this.wallMillis = wallMillis;
+            this.finished = finished;
+            this.x = x;
+            this.y = y;
+            this.heading = heading;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %.0f ms simulated in %.1f ms, ended at (%.0f, %.0f) %.0f deg", this.finished ? "Finished" : "Stopped", this.simulatedMillis, this.wallMillis, this.x, this.y, Math.toDegrees(this.heading));
+        }
+    }
+
+    /**
+     * This interface sets the gamepads during a simulated teleop.
+     */
+    public interface GamepadScript {
+
+        /**
+         * @param seconds  The simulated time since the start of the teleop.
+         * @param gamepad1 The driver gamepad.
+         * @param gamepad2 The gunner gamepad.
+         */
+        void update(double seconds, Gamepad gamepad1, Gamepad gamepad2);
+    }
+
+    /**
+     * @param simulator The simulator that the opmodes drive.
+     */
+    public DesktopRuntime(MecanumSimulator simulator) {
+        this.simulator = simulator;
+    }
+
+    /**
+     * This method runs an autonomous opmode from init until it finishes or the period ends.
+     *
+     * @param opMode A new instance of the opmode.
+     * @return What happened during the run.
+     */
+    public Result runAutonomous(SPQRLinearOpMode opMode) {
+        this.window = autonomousMillis * 1000000;
+        this.started = false;
+        opMode.runtime = this;
+
+        //The IMUs and the color sensor are sampled in simulated time instead of on their own threads
+        opMode.robot.headingRate = 0;
+        opMode.robot.colorRate = 0;
+        long wallStart = System.nanoTime();
+        try {
+            opMode.runOpMode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        opMode.robot.stop();
+        return this.result(wallStart);
+    }
+
+    /**
+     * This method runs the teleop for the whole period.
+     *
+     * @param opMode A new instance of the teleop.
+     * @param script The gamepad input for the run.
+     * @return What happened during the run.
+     */
+    public Result runTeleOp(MainOpMode opMode, GamepadScript script) {
+        this.window = teleOpMillis * 1000000;
+        this.started = false;
+        opMode.devices = this.simulator;
+        opMode.gamepad1 = new Gamepad();
+        opMode.gamepad2 = new Gamepad();
+        long wallStart = System.nanoTime();
+        opMode.init();
+        this.waitForStart();
+        while (this.isActive()) {
+            script.update((this.clock.nanoTime() - this.startTime) / 1e9, opMode.gamepad1, opMode.gamepad2);
+            opMode.loop();
+            this.onLoop();
+        }
+        opMode.stop();
+        return this.result(wallStart);
+    }
+
+    private Result result(long wallStart) {
+        double simulated = this.started ? (this.clock.nanoTime() - this.startTime) / 1e6 : 0;
+        double wall = (System.nanoTime() - wallStart) / 1e6;
+        return new Result(simulated, wall, simulated < this.window / 1e6, this.simulator.getX(), this.simulator.getY(), this.simulator.getHeading());
+    }
+
+    /**
+     * This method moves the clock and the simulator forward, stopping at the end of the period.
+     *
+     * @param nanoseconds The amount of time to move forward.
+     */
+    private void advance(long nanoseconds) {
+        if (this.started) {
+            nanoseconds = Math.min(nanoseconds, this.startTime + this.window - this.clock.nanoTime());
+        }
+        while (nanoseconds > 0) {
+            long step = Math.min(nanoseconds, this.stepPeriod);
+            this.simulator.step(step / 1e9);
+            this.clock.advance(step);
+            nanoseconds -= step;
+        }
+    }
+
+    @Override
+    public SPQRDevices getDevices() {
+        return this.simulator;
+    }
+
+    @Override
+    public void waitForStart() {
+        this.started = true;
+        this.startTime = this.clock.nanoTime();
+    }
+
+    @Override
+    public boolean isActive() {
+        return this.started && this.clock.nanoTime() - this.startTime < this.window;
+    }
+
+    @Override
+    public void sleep(long milliseconds) {
+        if (!this.isActive()) return;
+        this.advance(milliseconds * 1000000);
+    }
+
+    @Override
+    public long nanoTime() {
+        return this.clock.nanoTime();
+    }
+
+    @Override
+    public void onLoop() {
+        this.advance(this.loopPeriod);
+    }
+
+    /**
+     * This method runs every competition autonomous in the simulator and prints how long each one
+     * takes and the timing of its loops. If a folder is given, the trajectories of each routine are
+     * saved into it, to be copied to the trajectories folder on the robot controller.
+     */
+    public static void main(String[] args) {
+        SPQRLinearOpMode[] routines = {new Bear(), new Glacier(), new Sunflower(), new Trumpet(), new Andromeda(), new Jane()};
+        for (SPQRLinearOpMode routine : routines) {
+            DesktopRuntime runtime = new DesktopRuntime(new MecanumSimulator());
+            String name = routine.getClass().getSimpleName();
+            System.out.println(name + ": " + runtime.runAutonomous(routine));
+            System.out.println(routine.loopStats.summary());
+            if (routine.trajectories.getLateMisses() > 0) System.out.println("  " + routine.trajectories.getLateMisses() + " trajectories were computed after the start");
+            if (args.length > 0 && routine.trajectories.size() > 0) {
+                File file = new File(args[0], name + ".bin");
+                if (routine.trajectories.save(file)) System.out.println("  Saved " + routine.trajectories.size() + " trajectories to " + file);
+            }
+        }
+    }
+}
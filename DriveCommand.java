@@ -0,0 +1,112 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This class runs the drive motors to encoder targets, which is how the robot drives, strafes and
+ * turns. It finishes once none of the drive motors are busy. The motors brake while the command
+ * runs and go back to their previous zero power behavior when it ends.
+ *
+ * The targets and powers are in the order of the hardware snapshot: left front, right front, left
+ * back, right back. Commands for common movements are created by SPQRLinearOpMode.
+ *
+ * @author Arkin Solomon
+ */
+public class DriveCommand implements Command {
+
+    protected final SPQRLinearOpMode opMode;
+    protected final HardwareSPQR robot;
+    protected final int[] targets;
+    protected final double[] powers;
+    protected DcMotor.ZeroPowerBehavior previousBehavior = null;
+
+    /**
+     * @param opMode  The opmode that keeps the total encoder counts of the robot.
+     * @param targets The target position of each drive motor in encoder units.
+     * @param powers  The power of each drive motor.
+     */
+    public DriveCommand(SPQRLinearOpMode opMode, int[] targets, double[] powers) {
+        this.opMode = opMode;
+        this.robot = opMode.robot;
+        this.targets = targets;
+        this.powers = powers;
+    }
+
+    @Override
+    public void start(long now) {
+        this.previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
+        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        this.robot.leftFrontDrive.setTargetPosition(this.targets[HardwareSnapshot.LEFT_FRONT]);
+        this.robot.rightFrontDrive.setTargetPosition(this.targets[HardwareSnapshot.RIGHT_FRONT]);
+        this.robot.leftBackDrive.setTargetPosition(this.targets[HardwareSnapshot.LEFT_BACK]);
+        this.robot.rightBackDrive.setTargetPosition(this.targets[HardwareSnapshot.RIGHT_BACK]);
+        this.opMode.resetEncoders(DcMotor.RunMode.RUN_TO_POSITION);
+        this.robot.leftFrontDrive.setPower(this.powers[HardwareSnapshot.LEFT_FRONT]);
+        this.robot.rightFrontDrive.setPower(this.powers[HardwareSnapshot.RIGHT_FRONT]);
+        this.robot.leftBackDrive.setPower(this.powers[HardwareSnapshot.LEFT_BACK]);
+        this.robot.rightBackDrive.setPower(this.powers[HardwareSnapshot.RIGHT_BACK]);
+    }
+
+    @Override
+    public void update(long now) {
+
+        //The motor controllers run to the targets by themselves
+    }
+
+    @Override
+    public boolean isFinished() {
+        return !this.robot.snapshot.drivesBusy();
+    }
+
+    @Override
+    public void end() {
+        this.robot.setDriveZeroPowerBehavior(this.previousBehavior);
+    }
+
+    /**
+     * This method finds how far through the movement the robot is, from the last hardware snapshot.
+     *
+     * @return A double between 0 and 1.0, where 1.0 is at the targets.
+     */
+    public double getProgress() {
+        double moved = 0;
+        double total = 0;
+        for (int i = 0; i < 4; i++) {
+            moved += Math.min(Math.abs(this.robot.snapshot.getPosition(i)), Math.abs(this.targets[i]));
+            total += Math.abs(this.targets[i]);
+        }
+        return total == 0 ? 1 : moved / total;
+    }
+
+    /**
+     * This method creates a command that waits until this command is part of the way through its
+     * movement, used to start another command before the robot arrives.
+     *
+     * @param progress A double between 0 and 1.0 which is the fraction of the movement to wait for.
+     * @return The command.
+     */
+    public Command untilProgress(final double progress) {
+        return new Command() {
+            private boolean finished = false;
+
+            @Override
+            public void start(long now) {
+                this.finished = false;
+            }
+
+            @Override
+            public void update(long now) {
+                this.finished = getProgress() >= progress;
+            }
+
+            @Override
+            public boolean isFinished() {
+                return this.finished;
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class holds the constants of the real drivetrain, so that the odometry, the simulator and
+ * the opmodes all work from the same values.
+ *
+ * The drive motors are NeveRest 40 Gearmotors (see HardwareSPQR). Their encoders give 280 pulses
+ * per revolution of the output shaft, which the SDK counts on both edges of both channels, so an
+ * encoder reading changes by 1120 for every revolution of the wheel. The 280 used for ppr in
+ * SPQRLinearOpMode is the pulse count, not what the encoders read.
+ *
+ * The wheels are four inch mecanum wheels. The 5 inch wheelRadius in SPQRLinearOpMode isn't the
+ * wheel; together with ppr it only sets the units that the distances of the routines were tuned
+ * in, which are about 0.1 mm each on this drivetrain (SPQRLinearOpMode.driveUnit).
+ *
+ * @author Arkin Solomon
+ */
+public final class Drivetrain {
+
+    //Encoder ticks for each revolution of a wheel, for the NeveRest 40 Gearmotor
+    public static final double ticksPerRevolution = 1120;
+
+    //Four inch mecanum wheels
+    public static final double wheelDiameter = 4 * 25.4;
+
+    public static final double mmPerTick = Math.PI * wheelDiameter / ticksPerRevolution;
+    public static final double ticksPerMm = 1 / mmPerTick;
+
+    //Wheel travel for each radian that the robot turns, (track width + wheel base) / 2. This is
+    //found from the 21.1 ticks per degree that turn() was tuned to on the robot, so it includes
+    //the slip of the wheels while turning
+    public static final double turnRadius = 21.1 * 180 / Math.PI * mmPerTick;
+
+    //Fraction of the wheel travel that becomes sideways travel when strafing. This is an estimate
+    //and hasn't been measured on the robot
+    public static final double strafeEfficiency = 0.85;
+
+    private Drivetrain() {}
+}
@@ -0,0 +1,95 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a model of the floor of the field used by the simulator. The field uses the same
+ * coordinates as Vuforia: millimeters from the center of the field, with X from the audience wall
+ * towards the rear wall and Y from the red alliance wall towards the blue alliance wall. The floor
+ * is made of tiles with rectangles of tape on top of them.
+ *
+ * @author Arkin Solomon
+ */
+public class FieldModel {
+
+    //Half of the width of the field in millimeters
+    public static final double halfField = 72 * 25.4;
+
+    //Width of a strip of tape in millimeters
+    public static final double tapeWidth = 2 * 25.4;
+
+    //Color of the tiles in the format {RED, GREEN, BLUE} as read with the LED on
+    private final int[] tileColor = {1100, 1700, 1400};
+
+    //Rectangles of tape
+    private static final int MAX_TAPES = 16;
+    private final double[] xMin = new double[MAX_TAPES];
+    private final double[] yMin = new double[MAX_TAPES];
+    private final double[] xMax = new double[MAX_TAPES];
+    private final double[] yMax = new double[MAX_TAPES];
+    private final int[][] tapeColors = new int[MAX_TAPES][];
+    private int tapes = 0;
+
+    /**
+     * This method creates the Skystone field with the red and blue tape under the skybridge.
+     *
+     * @return The model of the field.
+     */
+    public static FieldModel skystone() {
+        FieldModel field = new FieldModel();
+        field.addTape(-tapeWidth / 2, -halfField, tapeWidth / 2, 0, TapeColors.red);
+        field.addTape(-tapeWidth / 2, 0, tapeWidth / 2, halfField, TapeColors.blue);
+        return field;
+    }
+
+    /**
+     * This method adds a rectangle of tape to the field.
+     *
+     * @param x1    The smallest x of the tape in millimeters.
+     * @param y1    The smallest y of the tape in millimeters.
+     * @param x2    The largest x of the tape in millimeters.
+     * @param y2    The largest y of the tape in millimeters.
+     * @param color The color of the tape in the format {RED, GREEN, BLUE}.
+     */
+    public void addTape(double x1, double y1, double x2, double y2, int[] color) {
+        if (this.tapes >= MAX_TAPES) {
+            throw new IllegalStateException("Too many tapes on the field");
+        }
+        this.xMin[this.tapes] = x1;
+        this.yMin[this.tapes] = y1;
+        this.xMax[this.tapes] = x2;
+        this.yMax[this.tapes] = y2;
+        this.tapeColors[this.tapes] = color;
+        this.tapes++;
+    }
+
+    /**
+     * This method finds the color of the floor at a point without allocating.
+     *
+     * @param x     The x position in millimeters.
+     * @param y     The y position in millimeters.
+     * @param color An array with three indexes which the color is written to in the format
+     *              {RED, GREEN, BLUE}.
+     */
+    public void colorAt(double x, double y, int[] color) {
+        int[] found = this.tileColor;
+        for (int i = 0; i < this.tapes; i++) {
+            if (x >= this.xMin[i] && x <= this.xMax[i] && y >= this.yMin[i] && y <= this.yMax[i]) {
+                found = this.tapeColors[i];
+                break;
+            }
+        }
+        color[0] = found[0];
+        color[1] = found[1];
+        color[2] = found[2];
+    }
+
+    /**
+     * This method keeps a position on the field.
+     *
+     * @param position A position along one axis in millimeters.
+     * @param margin   The distance from the wall that the position can't go past in millimeters.
+     * @return The position moved back inside the walls if it was outside.
+     */
+    public static double clamp(double position, double margin) {
+        return Math.max(-halfField + margin, Math.min(halfField - margin, position));
+    }
+}
@@ -26,14 +26,14 @@ public class Friend extends SPQRLinearOpMode {
 
         waitForStart();
 
-        if (opModeIsActive() && !isStopRequested()) {
+        if (this.isActive()) {
 
             //Initial movement forward
             this.drive(7000, 1);
 
             //grab the block using the tow, wait for the tow to come down before
             this.robot.dropTow();
-            this.sleep(1000);
+            this.pause(1000);
 
             //reverse away from the blocks
             this.drive(-3750, -1);
@@ -46,7 +46,7 @@ public class Friend extends SPQRLinearOpMode {
 
             //releasing the block, with a slight pause to make sure it is clear of the tow
             this.robot.raiseTow();
-            this.sleep(1000);
+            this.pause(1000);
 
             //reverse back to ensure line up.
             this.drive(-5000, -1);
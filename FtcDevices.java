@@ -0,0 +1,277 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import com.qualcomm.robotcore.hardware.ColorSensor;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.I2cDeviceSynchDevice;
+import com.qualcomm.robotcore.hardware.I2cDeviceSynchSimple;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+
+/**
+ * This class gets the devices of the robot from the hardware map and adapts them to the SPQR
+ * device interfaces.
+ *
+ * @author Arkin Solomon
+ */
+public class FtcDevices implements SPQRDevices {
+
+    private final HardwareMap hwMap;
+
+    /**
+     * @param hwMap The hardware map of the opmode.
+     */
+    public FtcDevices(HardwareMap hwMap) {
+        this.hwMap = hwMap;
+    }
+
+    @Override
+    public SPQRMotor getMotor(String name) {
+        return new Motor((DcMotorEx) this.hwMap.get(DcMotor.class, name));
+    }
+
+    @Override
+    public SPQRServo getServo(String name) {
+        return new ServoDevice(this.hwMap.get(Servo.class, name));
+    }
+
+    @Override
+    public SPQRColorSensor getColorSensor(String name) {
+        return new ColorSensorDevice(this.hwMap.get(ColorSensor.class, name));
+    }
+
+    @Override
+    public SPQRImu getImu(String name) {
+        return new Imu(this.hwMap.get(BNO055IMU.class, name));
+    }
+
+    /**
+     * This class passes every call to a motor on the robot.
+     */
+    public static class Motor implements SPQRMotor {
+
+        public final DcMotorEx motor;
+
+        public Motor(DcMotorEx motor) {
+            this.motor = motor;
+        }
+
+        @Override
+        public void setPower(double power) {
+            this.motor.setPower(power);
+        }
+
+        @Override
+        public double getPower() {
+            return this.motor.getPower();
+        }
+
+        @Override
+        public void setMode(DcMotor.RunMode mode) {
+            this.motor.setMode(mode);
+        }
+
+        @Override
+        public DcMotor.RunMode getMode() {
+            return this.motor.getMode();
+        }
+
+        @Override
+        public void setTargetPosition(int target) {
+            this.motor.setTargetPosition(target);
+        }
+
+        @Override
+        public int getTargetPosition() {
+            return this.motor.getTargetPosition();
+        }
+
+        @Override
+        public int getCurrentPosition() {
+            return this.motor.getCurrentPosition();
+        }
+
+        @Override
+        public double getVelocity() {
+            return this.motor.getVelocity();
+        }
+
+        @Override
+        public boolean isBusy() {
+            return this.motor.isBusy();
+        }
+
+        @Override
+        public void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior) {
+            this.motor.setZeroPowerBehavior(behavior);
+        }
+
+        @Override
+        public DcMotor.ZeroPowerBehavior getZeroPowerBehavior() {
+            return this.motor.getZeroPowerBehavior();
+        }
+
+        @Override
+        public void setDirection(DcMotor.Direction direction) {
+            this.motor.setDirection(direction);
+        }
+
+        @Override
+        public void setTargetPositionTolerance(int tolerance) {
+            this.motor.setTargetPositionTolerance(tolerance);
+        }
+    }
+
+    /**
+     * This class passes every call to a servo on the robot.
+     */
+    public static class ServoDevice implements SPQRServo {
+
+        public final Servo servo;
+
+        public ServoDevice(Servo servo) {
+            this.servo = servo;
+        }
+
+        @Override
+        public void setPosition(double position) {
+            this.servo.setPosition(position);
+        }
+
+        @Override
+        public double getPosition() {
+            return this.servo.getPosition();
+        }
+    }
+
+    /**
+     * This class passes every call to a color sensor on the robot. The REV Color Sensor V3 (a
+     * Broadcom APDS-9151) is also read directly over I2C, so that every channel can be read in one
+     * transaction instead of one per channel.
+     */
+    public static class ColorSensorDevice implements SPQRColorSensor {
+
+        //Registers of the APDS-9151
+        private static final int LS_MEAS_RATE = 0x04;
+        private static final int LS_GAIN = 0x05;
+        private static final int PS_DATA = 0x08;
+
+        //Proximity (2 bytes) and IR, green, blue and red (3 bytes each) follow PS_DATA
+        private static final int DATA_LENGTH = 14;
+
+        //Settings of the light sensor and their register values
+        private static final int[] GAINS = {1, 3, 6, 9, 18};
+        private static final int[] RESOLUTION_MILLIS = {400, 200, 100, 50, 25, 3};
+        private static final int[] RATE_MILLIS = {25, 50, 100, 200, 500, 1000, 2000};
+
+        public final ColorSensor sensor;
+
+        //Direct connection to the sensor, null if it isn't an I2C device
+        private final I2cDeviceSynchSimple client;
+
+        public ColorSensorDevice(ColorSensor sensor) {
+            this.sensor = sensor;
+            this.client = sensor instanceof I2cDeviceSynchDevice ? ((I2cDeviceSynchDevice<?>) sensor).getDeviceClient() : null;
+        }
+
+        @Override
+        public int red() {
+            return this.sensor.red();
+        }
+
+        @Override
+        public int green() {
+            return this.sensor.green();
+        }
+
+        @Override
+        public int blue() {
+            return this.sensor.blue();
+        }
+
+        @Override
+        public void enableLed(boolean enable) {
+            this.sensor.enableLed(enable);
+        }
+
+        @Override
+        public void read(int[] values) {
+            if (this.client == null) {
+                values[0] = this.sensor.red();
+                values[1] = this.sensor.green();
+                values[2] = this.sensor.blue();
+                values[3] = 0;
+                return;
+            }
+            byte[] data = this.client.read(PS_DATA, DATA_LENGTH);
+            values[0] = littleEndian(data, 11);
+            values[1] = littleEndian(data, 5);
+            values[2] = littleEndian(data, 8);
+            values[3] = ((data[1] & 0x07) << 8) | (data[0] & 0xFF);
+        }
+
+        /**
+         * This method reads a 20 bit light sensor channel from three bytes.
+         */
+        private static int littleEndian(byte[] data, int offset) {
+            return ((data[offset + 2] & 0x0F) << 16) | ((data[offset + 1] & 0xFF) << 8) | (data[offset] & 0xFF);
+        }
+
+        @Override
+        public long configure(int gain, int integrationMillis) {
+            if (this.client == null) return 0;
+
+            //Use the largest setting that isn't more than what was asked for
+            int gainCode = 0;
+            for (int i = 0; i < GAINS.length; i++) {
+                if (GAINS[i] <= gain) gainCode = i;
+            }
+            int resolutionCode = RESOLUTION_MILLIS.length - 1;
+            for (int i = RESOLUTION_MILLIS.length - 1; i >= 0; i--) {
+                if (RESOLUTION_MILLIS[i] <= integrationMillis) resolutionCode = i;
+            }
+
+            //Measure as often as the integration time allows
+            int integration = RESOLUTION_MILLIS[resolutionCode];
+            int rateCode = RATE_MILLIS.length - 1;
+            for (int i = RATE_MILLIS.length - 1; i >= 0; i--) {
+                if (RATE_MILLIS[i] >= integration) rateCode = i;
+            }
+            this.client.write8(LS_GAIN, gainCode);
+            this.client.write8(LS_MEAS_RATE, (resolutionCode << 4) | rateCode);
+
+            //A reading is from the last finished measurement, on average half a period old
+            return (RATE_MILLIS[rateCode] + integration) * 1000000L / 2;
+        }
+    }
+
+    /**
+     * This class reads the heading from an IMU in a REV hub.
+     */
+    public static class Imu implements SPQRImu {
+
+        public final BNO055IMU imu;
+
+        public Imu(BNO055IMU imu) {
+            this.imu = imu;
+        }
+
+        @Override
+        public boolean initialize() {
+            BNO055IMU.Parameters parameters = new BNO055IMU.Parameters();
+            parameters.angleUnit = BNO055IMU.AngleUnit.RADIANS;
+            parameters.mode = BNO055IMU.SensorMode.IMU;
+            return this.imu.initialize(parameters);
+        }
+
+        @Override
+        public double getHeading() {
+            return this.imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS).firstAngle;
+        }
+    }
+}
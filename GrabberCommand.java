@@ -0,0 +1,49 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class closes or opens the block-grabber and waits for the servo to move. Servos don't report
+ * their position, so the wait is a fixed amount of time.
+ *
+ * @author Arkin Solomon
+ */
+public class GrabberCommand implements Command {
+
+    private final HardwareSPQR robot;
+    private final boolean grab;
+    private final WaitCommand settle;
+
+    /**
+     * @param robot        The robot to move the grabber of.
+     * @param grab         True to close the grabber on a block, false to open it.
+     * @param milliseconds The time the servo takes to move.
+     */
+    public GrabberCommand(HardwareSPQR robot, boolean grab, long milliseconds) {
+        this.robot = robot;
+        this.grab = grab;
+        this.settle = new WaitCommand(milliseconds);
+    }
+
+    @Override
+    public void start(long now) {
+        if (this.grab) {
+            this.robot.grabBlock();
+        } else {
+            this.robot.releaseBlock();
+        }
+        this.settle.start(now);
+    }
+
+    @Override
+    public void update(long now) {
+        this.settle.update(now);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.settle.isFinished();
+    }
+
+    @Override
+    public void end() {
+    }
+}
@@ -1,11 +1,8 @@
 package org.firstinspires.ftc.teamcode;
 
 import com.qualcomm.ftccommon.SoundPlayer;
-import com.qualcomm.robotcore.hardware.ColorSensor;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
-import com.qualcomm.robotcore.hardware.Servo;
 
 /**
  * Hardware configurations
@@ -32,23 +29,58 @@ import com.qualcomm.robotcore.hardware.Servo;
 public class HardwareSPQR {
 
     //Declare hardware
-    public DcMotor leftFrontDrive = null;
-    public DcMotor leftBackDrive = null;
-    public DcMotor rightFrontDrive = null;
-    public DcMotor rightBackDrive = null;
-    public DcMotor armMotor = null;
-    public DcMotor tow = null;
-    public Servo blockGrabber = null;
-    public Servo armBalancer = null;
-    public ColorSensor lineParkSensor = null;
+    public BufferedMotor leftFrontDrive = null;
+    public BufferedMotor leftBackDrive = null;
+    public BufferedMotor rightFrontDrive = null;
+    public BufferedMotor rightBackDrive = null;
+    public BufferedMotor armMotor = null;
+    public BufferedMotor tow = null;
+    public BufferedServo blockGrabber = null;
+    public BufferedServo armBalancer = null;
+    public SPQRColorSensor lineParkSensor = null;
     public int pacmanId;
 
+    //Positions of the tow in encoder units and the power used to move it
+    public static final int towDownPosition = -650;
+    public static final int towUpPosition = -50;
+    public static final double towPower = 0.4;
+
+    //Values read from the hardware once per loop
+    public HardwareSnapshot snapshot = new HardwareSnapshot();
+
+    //Pose of the robot from the drive encoders, updated on every refresh
+    public MecanumOdometry odometry = new MecanumOdometry();
+
+    //Pose of the robot on the field from the odometry and the camera, updated on every refresh, or
+    //null. Only an opmode that gives it camera fixes should make one
+    public PoseFusion poseFusion = null;
+
+    //Heading from both hub IMUs, sampled this many times per second on its own thread, or on
+    //every refresh if zero
+    public HeadingService headingService = null;
+    public double headingRate = 50;
+
+    //Line park sensor, read in one transaction this many times per second on its own thread, or on
+    //every refresh if zero, with the gain and integration time in milliseconds of its light sensor
+    public ColorSensorPoller colorPoller = null;
+    public double colorRate = 40;
+    public int colorGain = 3;
+    public int colorIntegration = 25;
+
+    //Every buffered actuator, used to flush them together
+    public BufferedMotor[] motors = new BufferedMotor[0];
+    public BufferedServo[] servos = new BufferedServo[0];
+
     //Hardware map
     HardwareMap hwMap = null;
 
     //True if robot is initialized
     private boolean robotIsInitialized = false;
 
+    //True while the opmode is queueing a blended move, when the mechanisms can't be moved because
+    //they would move before the queued drive segments
+    boolean blending = false;
+
     /**
      * This method initializes the hardware on the robot including sensors, servos, and motors.
      * This method should be updated whenever a hardware device is added or removed, or when a
@@ -62,15 +94,30 @@ public class HardwareSPQR {
         //Initialize hardware map
         hwMap = ahwMap;
 
+        this.init(new FtcDevices(hwMap));
+
+        //Initialize sounds
+        pacmanId = hwMap.appContext.getResources().getIdentifier("pacman_chomp", "raw", hwMap.appContext.getPackageName());
+    }
+
+    /**
+     * This method initializes the hardware from any source of devices, such as the simulator. The
+     * robot uses init(HardwareMap) instead.
+     *
+     * @param devices The source of the devices of the robot.
+     */
+    public void init(SPQRDevices devices) {
+
         /* Initialize motors*/
 
         //Define motors
-        this.leftFrontDrive = hwMap.get(DcMotor.class, "left_front_drive");
-        this.leftBackDrive = hwMap.get(DcMotor.class, "left_back_drive");
-        this.rightFrontDrive = hwMap.get(DcMotor.class, "right_front_drive");
-        this.rightBackDrive = hwMap.get(DcMotor.class, "right_back_drive");
-        this.armMotor = hwMap.get(DcMotor.class, "arm_motor");
-        this.tow = hwMap.get(DcMotor.class, "tow");
+        this.leftFrontDrive = new BufferedMotor(devices.getMotor("left_front_drive"), "left_front_drive");
+        this.leftBackDrive = new BufferedMotor(devices.getMotor("left_back_drive"), "left_back_drive");
+        this.rightFrontDrive = new BufferedMotor(devices.getMotor("right_front_drive"), "right_front_drive");
+        this.rightBackDrive = new BufferedMotor(devices.getMotor("right_back_drive"), "right_back_drive");
+        this.armMotor = new BufferedMotor(devices.getMotor("arm_motor"), "arm_motor");
+        this.tow = new BufferedMotor(devices.getMotor("tow"), "tow");
+        this.motors = new BufferedMotor[] {this.leftFrontDrive, this.leftBackDrive, this.rightFrontDrive, this.rightBackDrive, this.armMotor, this.tow};
 
 
         //Reset encoders and set initial positions
@@ -79,7 +126,7 @@ public class HardwareSPQR {
         this.armMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
         this.armMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
         this.tow.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        this.tow.setTargetPosition(-50);
+        this.tow.setTargetPosition(towUpPosition);
         this.tow.setMode(DcMotor.RunMode.RUN_TO_POSITION);
 
         //Set motors to brake
@@ -88,11 +135,11 @@ public class HardwareSPQR {
         this.tow.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
 
         //Set encoder tolerance of all of the motors on the robot
-        ((DcMotorEx) this.leftFrontDrive).setTargetPositionTolerance(10);
-        ((DcMotorEx) this.leftBackDrive).setTargetPositionTolerance(10);
-        ((DcMotorEx) this.rightFrontDrive).setTargetPositionTolerance(10);
-        ((DcMotorEx) this.rightBackDrive).setTargetPositionTolerance(10);
-        ((DcMotorEx) this.tow).setTargetPositionTolerance(25);
+        this.leftFrontDrive.setTargetPositionTolerance(10);
+        this.leftBackDrive.setTargetPositionTolerance(10);
+        this.rightFrontDrive.setTargetPositionTolerance(10);
+        this.rightBackDrive.setTargetPositionTolerance(10);
+        this.tow.setTargetPositionTolerance(25);
 
         //Sets motor direction
         this.leftFrontDrive.setDirection(DcMotor.Direction.REVERSE);
@@ -113,8 +160,9 @@ public class HardwareSPQR {
         /* Initialize servos */
 
         //Define servos
-        this.blockGrabber = hwMap.get(Servo.class, "block_grabber");
-        this.armBalancer = hwMap.get(Servo.class, "arm_balancer");
+        this.blockGrabber = new BufferedServo(devices.getServo("block_grabber"), "block_grabber");
+        this.armBalancer = new BufferedServo(devices.getServo("arm_balancer"), "arm_balancer");
+        this.servos = new BufferedServo[] {this.blockGrabber, this.armBalancer};
 
         //Reset servo positions
         this.blockGrabber.setPosition(1);
@@ -123,16 +171,126 @@ public class HardwareSPQR {
         /* Initialize sensors */
 
         //Define sensors
-        this.lineParkSensor = hwMap.get(ColorSensor.class, "line_park_sensor");
+        this.lineParkSensor = devices.getColorSensor("line_park_sensor");
 
         //Turn on linePark LEDs
         this.lineParkSensor.enableLed(true);
         this.lineParkSensor.enableLed(false);
 
-        //Initialize sounds
-        pacmanId = hwMap.appContext.getResources().getIdentifier("pacman_chomp", "raw", hwMap.appContext.getPackageName());
+        //Start reading the line park sensor
+        this.colorPoller = new ColorSensorPoller(this.lineParkSensor);
+        this.colorPoller.configure(this.colorGain, this.colorIntegration);
+        if (this.colorRate > 0) this.colorPoller.start(this.colorRate);
+
+        //Start sampling the IMUs
+        this.headingService = new HeadingService(devices.getImu("imu"), devices.getImu("imu 1"), this.odometry);
+        if (this.headingRate > 0) {
+            this.headingService.start(this.headingRate);
+        } else {
+            this.headingService.initialize();
+        }
 
         this.robotIsInitialized = true;
+
+        //Take the first snapshot so that reads are valid before the first loop
+        this.refresh();
+    }
+
+    /**
+     * This method stops the background threads of the hardware. A linear opmode doesn't need to
+     * call this because the threads stop once the opmode thread ends.
+     */
+    public void stop() {
+        if (this.headingService != null) this.headingService.stop();
+        if (this.colorPoller != null) this.colorPoller.stop();
+    }
+
+    /**
+     * This method makes every actuator hold its power, target and position writes until flush() is
+     * called. Writes that don't change anything are dropped either way. This should be called at the
+     * start of a loop that writes to the hardware.
+     */
+    public void holdWrites() {
+        for (BufferedMotor motor : this.motors) {
+            motor.holdWrites();
+        }
+        for (BufferedServo servo : this.servos) {
+            servo.holdWrites();
+        }
+    }
+
+    /**
+     * This method writes every held actuator value to the hardware together. This should be called
+     * at the end of every loop that writes to the hardware.
+     */
+    public void flush() {
+        for (BufferedMotor motor : this.motors) {
+            motor.flush();
+        }
+        for (BufferedServo servo : this.servos) {
+            servo.flush();
+        }
+    }
+
+    /**
+     * This method sets the largest change in a power or position that is dropped as unchanged for
+     * every actuator on the robot.
+     *
+     * @param epsilon A double greater than zero.
+     */
+    public void setWriteEpsilon(double epsilon) {
+        for (BufferedMotor motor : this.motors) {
+            motor.setEpsilon(epsilon);
+        }
+        for (BufferedServo servo : this.servos) {
+            servo.setEpsilon(epsilon);
+        }
+    }
+
+    /**
+     * This method returns the amount of writes sent to the hardware by every actuator.
+     *
+     * @return The total amount of issued writes.
+     */
+    public long getIssuedWrites() {
+        long writes = 0;
+        for (BufferedMotor motor : this.motors) {
+            writes += motor.getIssuedWrites();
+        }
+        for (BufferedServo servo : this.servos) {
+            writes += servo.getIssuedWrites();
+        }
+        return writes;
+    }
+
+    /**
+     * This method returns the amount of writes dropped by every actuator.
+     *
+     * @return The total amount of suppressed writes.
+     */
+    public long getSuppressedWrites() {
+        long writes = 0;
+        for (BufferedMotor motor : this.motors) {
+            writes += motor.getSuppressedWrites();
+        }
+        for (BufferedServo servo : this.servos) {
+            writes += servo.getSuppressedWrites();
+        }
+        return writes;
+    }
+
+    /**
+     * This method reads all of the motor encoders, velocities, busy flags and the arm and tow
+     * positions from the hardware into the snapshot. Every read after this in the same loop should
+     * be taken from the snapshot. This should be called once at the top of every control loop.
+     */
+    public void refresh() {
+        if (!this.robotIsInitialized) return;
+        this.snapshot.refresh(this);
+        this.odometry.update(this.snapshot);
+        if (this.poseFusion != null) this.poseFusion.update(this.odometry.getPose());
+        if (this.headingRate <= 0) this.headingService.sample();
+        if (this.colorRate <= 0) this.colorPoller.sample();
     }
 
     /**
@@ -237,6 +395,7 @@ public class HardwareSPQR {
      * This method closes the block-grabbing servo.
      */
     public void grabBlock() {
+        this.checkNotBlending("grabBlock()");
         if (!this.robotIsInitialized) return;
         this.blockGrabber.setPosition(-1);
     }
@@ -245,6 +404,7 @@ public class HardwareSPQR {
      * This method opens the block-grabbing servo.
      */
     public void releaseBlock() {
+        this.checkNotBlending("releaseBlock()");
         if (!this.robotIsInitialized) return;
         this.blockGrabber.setPosition(1);
     }
@@ -264,7 +424,21 @@ public class HardwareSPQR {
     }
 
     /**
-     * This method sets the drive mode of all of the drive motors.
+     * This method places the robot on the field in both the odometry and the fused pose if there is
+     * one, such as at the starting position of a routine.
+     *
+     * @param x       The x position in millimeters.
+     * @param y       The y position in millimeters.
+     * @param heading The heading in radians, counterclockwise.
+     */
+    public void setPose(double x, double y, double heading) {
+        this.odometry.setPose(x, y, heading);
+        if (this.poseFusion != null) this.poseFusion.setPose(x, y, heading);
+    }
+
+    /**
+     * This method sets the drive mode of all of the drive motors. Resetting the encoders also
+     * rebases the odometry, so the robot should be refreshed first to keep the last movement.
      *
      * @param mode a RunMode enumeration (Under DcMotor) which will be applied to all
      *             of the drive motors of the robot.
@@ -274,6 +448,7 @@ public class HardwareSPQR {
         this.rightFrontDrive.setMode(mode);
         this.leftBackDrive.setMode(mode);
         this.rightBackDrive.setMode(mode);
+        if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) this.odometry.rebase();
     }
 
     /**
@@ -294,16 +469,28 @@ public class HardwareSPQR {
      * block.
      */
     public void dropTow(){
-        this.tow.setTargetPosition(-650);
-        this.tow.setPower(0.4);
+        this.checkNotBlending("dropTow()");
+        this.tow.setTargetPosition(towDownPosition);
+        this.tow.setPower(towPower);
     }
 
     /**
      * This method simply raises the tow to it's initial position.
      */
     public void raiseTow(){
-        this.tow.setTargetPosition(-50);
-        this.tow.setPower(0.4);
+        this.checkNotBlending("raiseTow()");
+        this.tow.setTargetPosition(towUpPosition);
+        this.tow.setPower(towPower);
+    }
+
+    /**
+     * This method throws if the opmode is queueing a blended move, since anything other than a
+     * drive or a strafe would run before the segments queued ahead of it.
+     *
+     * @param action The name of what was called, for the message.
+     */
+    void checkNotBlending(String action) {
+        if (this.blending) throw new IllegalStateException(action + " can't be called between beginBlend() and endBlend()");
     }
 }
 
@@ -0,0 +1,190 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class holds a snapshot of every motor value that the control loops read. All of the values
+ * are read from the hubs once per loop in refresh() and every later read in the same loop is served
+ * from the snapshot instead of making another hub call.
+ *
+ * @author Arkin Solomon
+ */
+public class HardwareSnapshot {
+
+    //Indexes of the drive motors in the snapshot arrays
+    public static final int LEFT_FRONT = 0;
+    public static final int RIGHT_FRONT = 1;
+    public static final int LEFT_BACK = 2;
+    public static final int RIGHT_BACK = 3;
+
+    //Drive motor values
+    private final int[] positions = new int[4];
+    private final int[] targets = new int[4];
+    private final double[] velocities = new double[4];
+    private final boolean[] busy = new boolean[4];
+
+    //Arm and tow values
+    private int armPosition;
+    private boolean armBusy;
+    private int towPosition;
+    private boolean towBusy;
+
+    //Counters used to show how many hub calls the snapshot saves
+    private long refreshes = 0;
+    private long staleReads = 0;
+    private long lastRefreshNanos = 0;
+
+    /**
+     * This method reads every value from the hardware and stores it in the snapshot. This should be
+     * called once at the top of every control loop.
+     *
+     * @param robot The initialized robot to read from.
+     */
+    void refresh(HardwareSPQR robot) {
+        this.readDrive(LEFT_FRONT, robot.leftFrontDrive);
+        this.readDrive(RIGHT_FRONT, robot.rightFrontDrive);
+        this.readDrive(LEFT_BACK, robot.leftBackDrive);
+        this.readDrive(RIGHT_BACK, robot.rightBackDrive);
+
+        this.armPosition = robot.armMotor.getCurrentPosition();
+        this.armBusy = robot.armMotor.isBusy();
+        this.towPosition = robot.tow.getCurrentPosition();
+        this.towBusy = robot.tow.isBusy();
+
+        this.refreshes++;
+        this.lastRefreshNanos = System.nanoTime();
+    }
+
+    /**
+     * This method reads all of the values of a single drive motor into the snapshot.
+     *
+     * @param index The index of the drive motor in the snapshot arrays.
+     * @param motor The motor to read from.
+     */
+    private void readDrive(int index, BufferedMotor motor) {
+        this.positions[index] = motor.getCurrentPosition();
+        this.targets[index] = motor.getTargetPosition();
+        this.velocities[index] = motor.getVelocity();
+        this.busy[index] = motor.isBusy();
+    }
+
+    /**
+     * This method returns the encoder position of a drive motor from the last refresh.
+     *
+     * @param index The index of the drive motor, for example LEFT_FRONT.
+     * @return The encoder position of the motor.
+     */
+    public int getPosition(int index) {
+        this.staleReads++;
+        return this.positions[index];
+    }
+
+    /**
+     * This method returns the target position of a drive motor from the last refresh.
+     *
+     * @param index The index of the drive motor, for example LEFT_FRONT.
+     * @return The target position of the motor in encoder units.
+     */
+    public int getTarget(int index) {
+        this.staleReads++;
+        return this.targets[index];
+    }
+
+    /**
+     * This method returns the velocity of a drive motor from the last refresh.
+     *
+     * @param index The index of the drive motor, for example LEFT_FRONT.
+     * @return The velocity of the motor in encoder units per second.
+     */
+    public double getVelocity(int index) {
+        this.staleReads++;
+        return this.velocities[index];
+    }
+
+    /**
+     * This method returns whether or not a drive motor was busy during the last refresh.
+     *
+     * @param index The index of the drive motor, for example LEFT_FRONT.
+     * @return True if the motor was busy.
+     */
+    public boolean isBusy(int index) {
+        this.staleReads++;
+        return this.busy[index];
+    }
+
+    /**
+     * This method returns true if at least one drive motor was busy during the last refresh.
+     *
+     * @return True if one or more drive motors were busy, false otherwise.
+     */
+    public boolean drivesBusy() {
+        this.staleReads++;
+        return this.busy[LEFT_FRONT] || this.busy[RIGHT_FRONT] || this.busy[LEFT_BACK] || this.busy[RIGHT_BACK];
+    }
+
+    /**
+     * This method returns the average encoder position of all of the drive motors.
+     *
+     * @return The average of the drive motor encoder positions.
+     */
+    public double driveAverage() {
+        this.staleReads++;
+        return (this.positions[LEFT_FRONT] + this.positions[RIGHT_FRONT] + this.positions[LEFT_BACK] + this.positions[RIGHT_BACK]) / 4;
+    }
+
+    /**
+     * This method returns the average of the absolute encoder positions of all of the drive motors.
+     *
+     * @return A value greater than or equal to zero which is the average absolute encoder position.
+     */
+    public double absoluteDriveAverage() {
+        this.staleReads++;
+        return (Math.abs(this.positions[LEFT_FRONT]) + Math.abs(this.positions[RIGHT_FRONT]) + Math.abs(this.positions[LEFT_BACK]) + Math.abs(this.positions[RIGHT_BACK])) / 4;
+    }
+
+    public int getArmPosition() {
+        this.staleReads++;
+        return this.armPosition;
+    }
+
+    public boolean isArmBusy() {
+        this.staleReads++;
+        return this.armBusy;
+    }
+
+    public int getTowPosition() {
+        this.staleReads++;
+        return this.towPosition;
+    }
+
+    public boolean isTowBusy() {
+        this.staleReads++;
+        return this.towBusy;
+    }
+
+    /**
+     * This method returns the amount of times the snapshot has been refreshed from the hardware.
+     *
+     * @return The amount of refreshes since initialization.
+     */
+    public long getRefreshes() {
+        return this.refreshes;
+    }
+
+    /**
+     * This method returns the amount of reads that were served from the snapshot instead of the
+     * hardware. Compared with getRefreshes() this shows how many hub calls were saved.
+     *
+     * @return The amount of reads served from the snapshot since initialization.
+     */
+    public long getStaleReads() {
+        return this.staleReads;
+    }
+
+    /**
+     * This method returns the time at which the snapshot was last refreshed.
+     *
+     * @return The value of System.nanoTime() at the last refresh.
+     */
+    public long getLastRefreshNanos() {
+        return this.lastRefreshNanos;
+    }
+}
@@ -0,0 +1,126 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a feedback controller for the heading of the robot. It adds feedforward from the
+ * velocity and acceleration of a setpoint to a PID on the measured heading. The error is wrapped so
+ * the robot always turns the short way, the output is saturated, and the integral stops growing
+ * while the output is saturated so that it doesn't wind up during a long turn.
+ *
+ * All angles are in radians and counterclockwise. The output is a turning power, positive to turn
+ * counterclockwise.
+ *
+ * @author Arkin Solomon
+ */
+public class HeadingController {
+
+    //Feedforward, power per radian per second and per radian per second squared
+    public double kV = 0.45;
+    public double kA = 0.05;
+
+    //Feedback, power per radian, per radian second and per radian per second
+    public double kP = 2.5;
+    public double kI = 0.2;
+    public double kD = 0.1;
+
+    //Largest output and largest contribution of the integral
+    public double maxOutput = 1;
+    public double maxIntegral = 0.2;
+
+    //Largest error and rate of turn that count as settled
+    public double tolerance = Math.toRadians(1);
+    public double rateTolerance = Math.toRadians(5);
+
+    //Time constant in seconds of the low-pass filter on a rate of turn found from headings
+    public double rateSmoothing = 0.2;
+
+    private double integral = 0;
+    private double error = 0;
+    private double rate = 0;
+    private long lastTime = 0;
+
+    //Last heading given to the update without a measured rate of turn
+    private double lastHeading = 0;
+    private long lastHeadingTime = 0;
+    private double filteredRate = 0;
+
+    /**
+     * This method clears the integral, such as before a new turn.
+     */
+    public void reset() {
+        this.integral = 0;
+        this.error = 0;
+        this.rate = 0;
+        this.lastTime = 0;
+        this.lastHeadingTime = 0;
+        this.filteredRate = 0;
+    }
+
+    /**
+     * This method finds the turning power for one loop.
+     *
+     * @param setpoint     The heading to be at.
+     * @param velocity     The rate of turn of the setpoint in radians per second.
+     * @param acceleration The acceleration of the setpoint in radians per second squared.
+     * @param heading      The measured heading.
+     * @param rate         The measured rate of turn in radians per second.
+     * @param now          The time in nanoseconds.
+     * @return The turning power between -maxOutput and maxOutput.
+     */
+    public double update(double setpoint, double velocity, double acceleration, double heading, double rate, long now) {
+        double dt = this.lastTime == 0 ? 0 : (now - this.lastTime) / 1e9;
+        this.lastTime = now;
+        this.error = Pose.normalize(setpoint - heading);
+        this.rate = rate;
+
+        //The derivative is of the error, which moves with the setpoint
+        double unsaturated = this.kV * velocity + this.kA * acceleration + this.kP * this.error + this.kI * this.integral + this.kD * (velocity - rate);
+        double output = Math.max(-this.maxOutput, Math.min(this.maxOutput, unsaturated));
+
+        //Only integrate when it won't push the output further into saturation
+        if (output == unsaturated || Math.signum(this.error) != Math.signum(unsaturated)) {
+            this.integral += this.error * dt;
+            if (this.kI != 0) {
+                double limit = this.maxIntegral / this.kI;
+                this.integral = Math.max(-limit, Math.min(limit, this.integral));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * This method finds the turning power for one loop towards a setpoint that doesn't move, from a
+     * sensor that only measures the heading, such as Vuforia. The rate of turn is the change in
+     * heading between updates, low-passed with a time constant of rateSmoothing, since the change
+     * between two noisy headings a frame apart is mostly noise. It should only be called with a
+     * new heading.
+     *
+     * @param setpoint The heading to be at.
+     * @param heading  The measured heading.
+     * @param time     The time the heading was measured in nanoseconds.
+     * @return The turning power between -maxOutput and maxOutput.
+     */
+    public double update(double setpoint, double heading, long time) {
+        if (this.lastHeadingTime != 0 && time > this.lastHeadingTime) {
+            double dt = (time - this.lastHeadingTime) / 1e9;
+            double rate = Pose.normalize(heading - this.lastHeading) / dt;
+            this.filteredRate += (rate - this.filteredRate) * dt / (this.rateSmoothing + dt);
+        }
+        this.lastHeading = heading;
+        this.lastHeadingTime = time;
+        return this.update(setpoint, 0, 0, heading, this.filteredRate, time);
+    }
+
+    /**
+     * @return True if the error and the rate of turn of the last update are both within tolerance.
+     */
+    public boolean isSettled() {
+        return Math.abs(this.error) <= this.tolerance && Math.abs(this.rate) <= this.rateTolerance;
+    }
+
+    /**
+     * @return The error of the last update in radians.
+     */
+    public double getError() {
+        return this.error;
+    }
+}
@@ -0,0 +1,241 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class reads the heading of the robot from the IMUs in both REV hubs on its own thread, so
+ * that control loops can read the heading at any time without waiting on I2C. In the simulator the
+ * control loop samples it instead so that it follows the simulated time.
+ *
+ * Each sample, the change in heading of each IMU is found, which handles the heading wrapping
+ * around at PI. If both IMUs agree the changes are averaged. If they don't, the change closest to
+ * the change in heading of the wheel odometry wins the vote. An IMU that fails to read is left out
+ * until it reads again, and if both fail the odometry is used alone. An IMU that fails to start is
+ * started again from the sampling thread every retryPeriod seconds. Because only changes are added
+ * up, switching between the sensors never makes the heading jump.
+ *
+ * @author Arkin Solomon
+ */
+public class HeadingService {
+
+    //Largest difference between the changes of the two IMUs in one sample that counts as agreeing
+    public double agreement = Math.toRadians(1);
+
+    //Seconds between attempts to start an IMU that failed to start. Starting an IMU holds up the
+    //samples of the other one, so this shouldn't be short
+    public double retryPeriod = 5;
+
+    private final SPQRImu[] imus;
+    private final MecanumOdometry odometry;
+
+    //State of the sampling thread
+    private final boolean[] ready = new boolean[2];
+    private final long[] nextRetry = new long[2];
+    private final boolean[] hasHeading = new boolean[2];
+    private final double[] lastHeading = new double[2];
+    private final double[] change = new double[2];
+    private final boolean[] changed = new boolean[2];
+    private double lastOdometryHeading = 0;
+    private double heading = 0;
+
+    //Published values, read by any thread
+    private volatile double publishedHeading = 0;
+    private volatile double offset = 0;
+    private volatile long publishedTime = 0;
+    private volatile int healthy = 0;
+    private volatile long disagreements = 0;
+
+    private ScheduledExecutorService executor = null;
+    private Thread owner = null;
+
+    /**
+     * @param primary   The IMU in the first hub.
+     * @param secondary The IMU in the second hub.
+     * @param odometry  The wheel odometry used to break ties between the IMUs, or null.
+     */
+    public HeadingService(SPQRImu primary, SPQRImu secondary, MecanumOdometry odometry) {
+        this.imus = new SPQRImu[] {primary, secondary};
+        this.odometry = odometry;
+    }
+
+    /**
+     * This method starts the IMUs and then samples them on a background thread. Sampling stops by
+     * itself once the thread that called this method ends.
+     *
+     * @param rate The amount of times per second to sample both IMUs.
+     */
+    public synchronized void start(double rate) {
+        if (this.executor != null) return;
+        this.owner = Thread.currentThread();
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "HeadingService");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        //Starting the IMUs is slow, so it is done on the sampling thread before the first sample
+        this.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                initialize();
+            }
+        });
+        long period = (long) (1000000000 / rate);
+        this.executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * This method stops sampling.
+     */
+    public synchronized void stop() {
+        if (this.executor == null) return;
+        this.executor.shutdown();
+        this.executor = null;
+    }
+
+    /**
+     * This method starts the IMUs on the calling thread. It is used instead of start() when
+     * sample() is called by the control loop, such as when running in the simulator.
+     */
+    void initialize() {
+        long now = System.nanoTime();
+        for (int i = 0; i < this.imus.length; i++) {
+            this.initialize(i, now);
+        }
+        if (this.odometry != null) this.lastOdometryHeading = this.odometry.getPose().heading;
+    }
+
+    /**
+     * This method starts one IMU and schedules the next attempt in case it fails.
+     */
+    private void initialize(int index, long now) {
+        try {
+            this.ready[index] = this.imus[index] != null && this.imus[index].initialize();
+        } catch (RuntimeException e) {
+            this.ready[index] = false;
+        }
+        this.nextRetry[index] = now + (long) (this.retryPeriod * 1e9);
+    }
+
+    /**
+     * This method reads both IMUs once and adds the voted change in heading. This runs on the
+     * sampling thread only, unless the service wasn't started.
+     */
+    void sample() {
+        if (this.owner != null && !this.owner.isAlive()) {
+            this.stop();
+            return;
+        }
+        long now = System.nanoTime();
+        int readable = 0;
+        for (int i = 0; i < this.imus.length; i++) {
+            this.changed[i] = false;
+            if (!this.ready[i]) {
+                if (this.imus[i] == null || now < this.nextRetry[i]) continue;
+                this.initialize(i, now);
+                if (!this.ready[i]) continue;
+            }
+            double reading;
+            try {
+                reading = this.imus[i].getHeading();
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (Double.isNaN(reading) || Double.isInfinite(reading)) continue;
+            readable++;
+            if (this.hasHeading[i]) {
+                this.change[i] = Pose.normalize(reading - this.lastHeading[i]);
+                this.changed[i] = true;
+            }
+            this.lastHeading[i] = reading;
+            this.hasHeading[i] = true;
+        }
+
+        //Change in heading of the wheels, the tie breaker
+        double odometryChange = 0;
+        if (this.odometry != null) {
+            double odometryHeading = this.odometry.getPose().heading;
+            odometryChange = Pose.normalize(odometryHeading - this.lastOdometryHeading);
+            this.lastOdometryHeading = odometryHeading;
+        }
+
+        double vote;
+        if (this.changed[0] && this.changed[1]) {
+            if (Math.abs(this.change[0] - this.change[1]) <= this.agreement) {
+                vote = (this.change[0] + this.change[1]) / 2;
+            } else {
+                this.disagreements++;
+                vote = Math.abs(this.change[0] - odometryChange) <= Math.abs(this.change[1] - odometryChange) ? this.change[0] : this.change[1];
+            }
+        } else if (this.changed[0]) {
+            vote = this.change[0];
+        } else if (this.changed[1]) {
+            vote = this.change[1];
+        } else {
+            vote = readable == 0 ? odometryChange : 0;
+        }
+        this.heading += vote;
+        this.healthy = readable;
+        this.publishedHeading = this.heading;
+        this.publishedTime = System.nanoTime();
+    }
+
+    /**
+     * This method sets the current heading, such as the starting heading of a routine.
+     *
+     * @param heading The heading of the robot in radians, counterclockwise.
+     */
+    public void setHeading(double heading) {
+        this.offset = heading - this.publishedHeading;
+    }
+
+    /**
+     * @return The heading of the robot in radians, counterclockwise, between -PI and PI.
+     */
+    public double getHeading() {
+        return Pose.normalize(this.getContinuousHeading());
+    }
+
+    /**
+     * This method returns the heading without wrapping, so that a full turn to the left ends at
+     * 2 PI instead of 0.
+     *
+     * @return The heading of the robot in radians, counterclockwise.
+     */
+    public double getContinuousHeading() {
+        return this.publishedHeading + this.offset;
+    }
+
+    /**
+     * @return The time the heading was last sampled in nanoseconds.
+     */
+    public long getTime() {
+        return this.publishedTime;
+    }
+
+    /**
+     * @return The amount of IMUs that read in the last sample, 0 if the heading is from the
+     * odometry.
+     */
+    public int getHealthySensors() {
+        return this.healthy;
+    }
+
+    /**
+     * @return The amount of samples where the IMUs disagreed.
+     */
+    public long getDisagreements() {
+        return this.disagreements;
+    }
+}
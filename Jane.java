@@ -23,7 +23,7 @@ public class Jane extends SPQRLinearOpMode {
 
         waitForStart();
 
-        if (opModeIsActive() && !isStopRequested()) {
+        if (this.isActive()) {
 
             //drive forward, to near the foundation
             this.drive(5500, 1);
@@ -36,7 +36,7 @@ public class Jane extends SPQRLinearOpMode {
 
             //set tow down
             this.robot.dropTow();
-            this.sleep(1000);
+            this.pause(1000);
 
             //pull back the foundation to the building site
             this.drive(-7000, -0.4);
@@ -0,0 +1,122 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class finds a line of tape with the color sensor on the underside of the robot and decides
+ * when to brake so that the sensor stops on the middle of the tape. Colors are compared by their
+ * chromaticity, the fraction of the brightness in each channel, so a sample matches the tape no
+ * matter how bright the LED makes it look. The distance is compared squared and multiplied out so
+ * that classifying a sample doesn't divide or allocate.
+ *
+ * Once the near edge of the tape is seen, its position is found from the time the sample was taken
+ * and the velocity of the robot, since the robot has kept moving since then. The robot brakes once
+ * the distance left to the middle of the tape is the distance it takes to stop at its current
+ * velocity.
+ *
+ * Positions are in any unit along the direction of travel, such as encoder units, and must
+ * increase as the robot moves towards the tape.
+ *
+ * @author Arkin Solomon
+ */
+public class LineDetector {
+
+    //Largest distance in chromaticity from the tape that counts as tape
+    public double threshold;
+
+    //Smallest sum of the channels that is bright enough to classify, such as when the LED is off
+    public int minBrightness = 600;
+
+    //Width of the tape in units of position
+    public double tapeWidth;
+
+    //Time the robot takes to stop from any velocity, including the time to send the command, so
+    //that it travels this times its velocity after braking
+    public double brakingTime = 0.08;
+
+    //Chromaticity of the tape
+    private final double tapeRed;
+    private final double tapeGreen;
+
+    private boolean edgeSeen = false;
+    private double edgePosition = 0;
+    private long lastTime = 0;
+
+    /**
+     * @param tapeColor The color of the tape in the format {RED, GREEN, BLUE}.
+     * @param threshold The largest distance in chromaticity from the tape that counts as tape.
+     * @param tapeWidth The width of the tape in units of position.
+     */
+    public LineDetector(int[] tapeColor, double threshold, double tapeWidth) {
+        double sum = tapeColor[0] + tapeColor[1] + tapeColor[2];
+        this.tapeRed = tapeColor[0] / sum;
+        this.tapeGreen = tapeColor[1] / sum;
+        this.threshold = threshold;
+        this.tapeWidth = tapeWidth;
+    }
+
+    /**
+     * This method checks if a color is the color of the tape.
+     *
+     * @param red   The red channel.
+     * @param green The green channel.
+     * @param blue  The blue channel.
+     * @return True if the color is bright enough and close enough to the tape.
+     */
+    public boolean isTape(int red, int green, int blue) {
+        int sum = red + green + blue;
+        if (sum < this.minBrightness) return false;
+
+        //The distance between chromaticities, multiplied by the sum
+        double redError = red - this.tapeRed * sum;
+        double greenError = green - this.tapeGreen * sum;
+        double limit = this.threshold * sum;
+        return redError * redError + greenError * greenError <= limit * limit;
+    }
+
+    /**
+     * This method adds a sample of the color sensor and decides if the robot should brake.
+     *
+     * @param red        The red channel.
+     * @param green      The green channel.
+     * @param blue       The blue channel.
+     * @param sampleTime The time the floor was seen in nanoseconds.
+     * @param now        The current time in nanoseconds, when the position and velocity were read.
+     * @param position   The current position.
+     * @param velocity   The current velocity in units per second.
+     * @return True once the robot should brake to stop on the middle of the tape.
+     */
+    public boolean update(int red, int green, int blue, long sampleTime, long now, double position, double velocity) {
+        double period = this.lastTime == 0 ? 0 : (now - this.lastTime) / 1e9;
+        this.lastTime = now;
+        if (!this.edgeSeen && this.isTape(red, green, blue)) {
+            this.edgeSeen = true;
+            this.edgePosition = position - velocity * (now - sampleTime) / 1e9;
+        }
+        if (!this.edgeSeen) return false;
+
+        //The next chance to brake is a loop away, so brake half a loop early on average
+        double stopping = velocity * (this.brakingTime + period / 2);
+        return this.getTarget() - position <= stopping;
+    }
+
+    /**
+     * This method forgets the edge of the tape, so that another line can be found.
+     */
+    public void reset() {
+        this.edgeSeen = false;
+        this.lastTime = 0;
+    }
+
+    /**
+     * @return True if the near edge of the tape has been seen.
+     */
+    public boolean hasEdge() {
+        return this.edgeSeen;
+    }
+
+    /**
+     * @return The position of the middle of the tape, once the edge has been seen.
+     */
+    public double getTarget() {
+        return this.edgePosition + this.tapeWidth / 2;
+    }
+}
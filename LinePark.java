@@ -5,18 +5,21 @@ import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 @Autonomous(name="LinePark -top (1) Line -out", group="Both")
 public class LinePark extends SPQRLinearOpMode {
 
+    //Route from the path generator
+    private static final String ROUTE = "TGluZVBhcms8PkxpbmVQYXJrIzwkPiM1NjIvfj9+LzEzMy9+P34vMSM8JD4jNTY2L34/fi8zMDEvfj9+LzE";
+
     @Override
     public void runOpMode() {
         this.hardwareInit();
 
-        waitForStart();
+        //Compile the route before the start so that it is ready to drive
+        RoutePlan route = this.compileRoute(ROUTE);
 
-        if (opModeIsActive() && !isStopRequested()) {
+        waitForStart();
 
-            //AUTO GENERATED CODE
-            //TOKEN: TGluZVBhcms8PkxpbmVQYXJrIzwkPiM1NjIvfj9+LzEzMy9+P34vMSM8JD4jNTY2L34/fi8zMDEvfj9+LzE
-            this.sleep(10000);
-            this.drive(3000, 1);
+        if (this.isActive()) {
+            this.pause(10000);
+            this.followPath(route.getPath());
             this.robot.dropTow();
         }
     }
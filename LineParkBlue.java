@@ -25,10 +25,10 @@ public class LineParkBlue extends SPQRLinearOpMode {
 
         waitForStart();
 
-        if (opModeIsActive() && !isStopRequested()) {
+        if (this.isActive()) {
 
 
-//            this.sleep(10000);
+//            this.pause(10000);
 //            this.stopAtTape(TapeColors.blue, 500);
         }
     }
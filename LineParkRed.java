@@ -25,8 +25,8 @@ public class LineParkRed extends SPQRLinearOpMode {
 
         waitForStart();
 
-        if (opModeIsActive() && !isStopRequested()) {
-//            this.sleep(10000);
+        if (this.isActive()) {
+//            this.pause(10000);
 //            this.stopAtTape(TapeColors.red, 500);
         }
     }
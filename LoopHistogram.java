@@ -0,0 +1,134 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class counts durations in a fixed amount of log-linear buckets. Each power of two is split
+ * into eight buckets, so a value is kept to within about 12% of what was recorded no matter how
+ * large it is. Recording only increments a counter, so it can be done in every iteration of a
+ * control loop without allocating.
+ *
+ * @author Arkin Solomon
+ */
+public class LoopHistogram {
+
+    //Amount of buckets in each power of two, as bits
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    //Largest power of two that can be recorded, about 18 minutes in nanoseconds
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final String name;
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long max = 0;
+    private long total = 0;
+
+    /**
+     * @param name The name of the histogram used in the summary.
+     */
+    public LoopHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * This method records one duration.
+     *
+     * @param nanoseconds The duration in nanoseconds, negative values are recorded as zero.
+     */
+    public void record(long nanoseconds) {
+        if (nanoseconds < 0) nanoseconds = 0;
+        this.counts[bucketOf(nanoseconds)]++;
+        this.count++;
+        this.total += nanoseconds;
+        if (nanoseconds > this.max) this.max = nanoseconds;
+    }
+
+    /**
+     * This method finds the duration that a fraction of the recorded durations are less than or
+     * equal to. The largest value of the bucket is returned, so the result is never less than the
+     * true percentile.
+     *
+     * @param fraction The fraction between 0 and 1, for example 0.99 for the 99th percentile.
+     * @return The duration in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long percentile(double fraction) {
+        if (this.count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * this.count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) return Math.min(highestValueOf(i), this.max);
+        }
+        return this.max;
+    }
+
+    /**
+     * This method clears every recorded duration.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts[i] = 0;
+        }
+        this.count = 0;
+        this.max = 0;
+        this.total = 0;
+    }
+
+    /**
+     * This method finds the bucket of a duration.
+     *
+     * @param value A duration that isn't negative.
+     * @return The index of the bucket.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (value >> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * This method finds the largest duration that goes in a bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return The duration in nanoseconds.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * @return The mean of the recorded durations in nanoseconds.
+     */
+    public double getMean() {
+        return this.count == 0 ? 0 : (double) this.total / this.count;
+    }
+
+    /**
+     * This method describes the histogram in one line. It allocates, so it should only be called
+     * when the loop is done, such as when the opmode stops.
+     *
+     * @return The count, p50, p99 and max in milliseconds.
+     */
+    public String summary() {
+        return String.format("%s: n=%d p50=%.2f ms p99=%.2f ms max=%.2f ms", this.name, this.count, this.percentile(0.5) / 1e6, this.percentile(0.99) / 1e6, this.max / 1e6);
+    }
+}
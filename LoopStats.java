@@ -0,0 +1,126 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+/**
+ * This class times a control loop. It records the period of each iteration and the time spent in
+ * each phase of the loop into histograms, so that jitter from slow hub calls or garbage collection
+ * can be seen after a run instead of only as the robot overshooting. Nothing is allocated while
+ * recording.
+ *
+ * An iteration starts with beginLoop() and each phase is ended with endPhase(). Time that shouldn't
+ * be counted towards a phase can be skipped with mark().
+ *
+ * @author Arkin Solomon
+ */
+public class LoopStats {
+
+    //Phases of an iteration
+    public static final int SENSOR_READ = 0;
+    public static final int COMPUTE = 1;
+    public static final int ACTUATOR_WRITE = 2;
+    public static final int TELEMETRY = 3;
+
+    private final String name;
+    private final LoopHistogram period = new LoopHistogram("Period");
+    private final LoopHistogram[] phases = {
+            new LoopHistogram("Sensor read"),
+            new LoopHistogram("Compute"),
+            new LoopHistogram("Actuator write"),
+            new LoopHistogram("Telemetry")
+    };
+
+    //Start of the current iteration and end of the last phase, 0 when not in a loop
+    private long loopStart = 0;
+    private long lastMark = 0;
+
+    /**
+     * @param name The name of the loop used in the summary, such as the name of the opmode.
+     */
+    public LoopStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * This method starts an iteration, recording the period since the start of the last one.
+     */
+    public void beginLoop() {
+        long now = System.nanoTime();
+        if (this.loopStart != 0) this.period.record(now - this.loopStart);
+        this.loopStart = now;
+        this.lastMark = now;
+    }
+
+    /**
+     * This method records the time since the last phase ended or the iteration started.
+     *
+     * @param phase The phase that just ended, such as LoopStats.SENSOR_READ.
+     */
+    public void endPhase(int phase) {
+        long now = System.nanoTime();
+        this.phases[phase].record(now - this.lastMark);
+        this.lastMark = now;
+    }
+
+    /**
+     * This method skips the time since the last phase ended so it isn't counted towards the next
+     * phase.
+     */
+    public void mark() {
+        this.lastMark = System.nanoTime();
+    }
+
+    /**
+     * This method ends the loop, so the time until the next loop begins isn't recorded as a period.
+     */
+    public void breakLoop() {
+        this.loopStart = 0;
+    }
+
+    /**
+     * This method clears every histogram.
+     */
+    public void reset() {
+        this.period.reset();
+        for (LoopHistogram phase : this.phases) {
+            phase.reset();
+        }
+        this.loopStart = 0;
+    }
+
+    public LoopHistogram getPeriod() {
+        return this.period;
+    }
+
+    /**
+     * @param phase The phase, such as LoopStats.SENSOR_READ.
+     * @return The histogram of the phase.
+     */
+    public LoopHistogram getPhase(int phase) {
+        return this.phases[phase];
+    }
+
+    /**
+     * This method describes the loop period and every phase that was recorded, one per line.
+     *
+     * @return The summary of the run.
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(this.name).append(" loop timing");
+        summary.append("\n  ").append(this.period.summary());
+        for (LoopHistogram phase : this.phases) {
+            if (phase.getCount() == 0) continue;
+            summary.append("\n  ").append(phase.summary());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * This method writes the summary to the robot controller log.
+     */
+    public void log() {
+        for (String line : this.summary().split("\n")) {
+            RobotLog.ii("LoopStats", "%s", line.trim());
+        }
+    }
+}
@@ -34,6 +34,28 @@ public class MainOpMode extends OpMode {
 
     private HardwareSPQR robot = new HardwareSPQR();
 
+    //Simulated devices when the teleop is run by DesktopRuntime instead of the robot controller
+    SPQRDevices devices = null;
+
+    //Timing of each loop, logged when the teleop stops
+    LoopStats loopStats = new LoopStats("MainOpMode");
+
+    //Telemetry is sent on its own thread this many times per second
+    public double telemetryRate = 8;
+    TelemetryPublisher publisher = null;
+    private int towSlot;
+    private int armSlot;
+    private int servoSlot;
+    private int redSlot;
+    private int greenSlot;
+    private int blueSlot;
+    private int proximitySlot;
+    private int readsSlot;
+    private int issuedSlot;
+    private int suppressedSlot;
+    private int headingSlot;
+    private int loopSlot;
+
     //Speed of the robot
     private double speed = 1.0;
 
@@ -46,12 +68,49 @@ public class MainOpMode extends OpMode {
     public void init() {
 
         //Initialize hardware
+        if (this.devices != null) {
+
+            //The IMUs and the color sensor are sampled in simulated time instead of on their own
+            //threads
+            this.robot.headingRate = 0;
+            this.robot.colorRate = 0;
+            this.robot.init(this.devices);
+            return;
+        }
         this.robot.init(hardwareMap);
+        this.addTelemetrySlots(new TelemetryPublisher(telemetry));
+        this.publisher.start(this.telemetryRate);
     }
 
     @Override
     public void loop() {
 
+        //Read the hardware once for this loop and hold writes so they are sent together
+        this.loopStats.beginLoop();
+        this.robot.refresh();
+        this.loopStats.endPhase(LoopStats.SENSOR_READ);
+        this.robot.holdWrites();
+        this.control();
+        this.loopStats.endPhase(LoopStats.COMPUTE);
+        this.robot.flush();
+        this.loopStats.endPhase(LoopStats.ACTUATOR_WRITE);
+        this.sendTelemetry();
+        this.loopStats.endPhase(LoopStats.TELEMETRY);
+    }
+
+    @Override
+    public void stop() {
+        if (this.publisher != null) this.publisher.stop();
+        this.robot.stop();
+        if (this.devices == null) this.loopStats.log();
+    }
+
+    /**
+     * This method reads the gamepads and sets the actuators of the robot. It may return early, so
+     * the loop flushes the writes after it returns.
+     */
+    private void control() {
+
         /* Left and right strafing movement */
         if (gamepad1.left_bumper){
             if (gamepad1.right_bumper) return;
@@ -134,12 +193,13 @@ public class MainOpMode extends OpMode {
         /* Arm movement */
 
         //Reset arm zero
-        if (gamepad2.right_bumper && gamepad2.left_bumper && !this.robot.armMotor.isBusy()){
+        if (gamepad2.right_bumper && gamepad2.left_bumper && !this.robot.snapshot.isArmBusy()){
             this.robot.armMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
             this.robot.armMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
         }
 
-        if (!this.robot.armMotor.isBusy()){
+        //The snapshot is from before the capstone command, so don't override it in the same loop
+        if (!gamepad2.x && !this.robot.snapshot.isArmBusy()){
             this.robot.armMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
             this.robot.armMotor.setPower(gamepad2.right_stick_y / 10);
         }
@@ -153,15 +213,54 @@ public class MainOpMode extends OpMode {
         if (!gamepad1.x){
             this.gamepad1_xPressed = false;
         }
-        this.robot.armBalancer.setPosition(this.robot.getServoPosition(this.robot.armMotor.getCurrentPosition()));
+        this.robot.armBalancer.setPosition(this.robot.getServoPosition(this.robot.snapshot.getArmPosition()));
+    }
+
+    /**
+     * This method creates the telemetry slots on a publisher without starting it, so that the loop
+     * can write into them when nothing is sent, such as in ControlLoopBenchmark.
+     *
+     * @param publisher The publisher that sendTelemetry() writes into.
+     */
+    void addTelemetrySlots(TelemetryPublisher publisher) {
+        this.publisher = publisher;
+        this.towSlot = this.publisher.addSlot("Tow", "%.0f", 1);
+        this.armSlot = this.publisher.addSlot("Arm", "%.0f", 1);
+        this.servoSlot = this.publisher.addSlot("Servo");
+        this.redSlot = this.publisher.addSlot("Red", "%.0f", 1);
+        this.greenSlot = this.publisher.addSlot("Green", "%.0f", 1);
+        this.blueSlot = this.publisher.addSlot("Blue", "%.0f", 1);
+        this.proximitySlot = this.publisher.addSlot("Proximity", "%.0f", 1);
+        this.readsSlot = this.publisher.addSlot("Snapshot reads", "%.0f", 1);
+        this.issuedSlot = this.publisher.addSlot("Issued writes", "%.0f", 1);
+        this.suppressedSlot = this.publisher.addSlot("Suppressed writes", "%.0f", 1);
+        this.headingSlot = this.publisher.addSlot("Heading", "%.1f", 1);
+        this.loopSlot = this.publisher.addSlot("Loop p99 (ms)");
+    }
+
+    /**
+     * This method writes the telemetry of the loop after the writes have been flushed. This only
+     * writes the values into the telemetry slots, they are sent by the publisher at the telemetry
+     * rate.
+     */
+    private void sendTelemetry() {
 
         /* Telementry data */
-        telemetry.addData("Tow", this.robot.tow.getCurrentPosition());
-        telemetry.addData("Arm", this.robot.armMotor.getCurrentPosition());
-        telemetry.addData("Servo", this.robot.armBalancer.getPosition());
-        telemetry.addData("Red", this.robot.lineParkSensor.red());
-        telemetry.addData("Green", this.robot.lineParkSensor.green());
-        telemetry.addData("Blue", this.robot.lineParkSensor.blue());
-        telemetry.update();
+
+        //There is no driver station when running on the desktop
+        if (this.publisher == null) return;
+        this.publisher.set(this.towSlot, this.robot.snapshot.getTowPosition());
+        this.publisher.set(this.armSlot, this.robot.snapshot.getArmPosition());
+        this.publisher.set(this.servoSlot, this.robot.armBalancer.getPosition());
+        ColorSensorPoller.Sample color = this.robot.colorPoller.getSample();
+        this.publisher.set(this.redSlot, color.red);
+        this.publisher.set(this.greenSlot, color.green);
+        this.publisher.set(this.blueSlot, color.blue);
+        this.publisher.set(this.proximitySlot, color.proximity);
+        this.publisher.set(this.readsSlot, this.robot.snapshot.getStaleReads());
+        this.publisher.set(this.issuedSlot, this.robot.getIssuedWrites());
+        this.publisher.set(this.suppressedSlot, this.robot.getSuppressedWrites());
+        this.publisher.set(this.headingSlot, Math.toDegrees(this.robot.headingService.getHeading()));
+        this.publisher.set(this.loopSlot, this.loopStats.getPeriod().percentile(0.99) / 1e6);
     }
 }
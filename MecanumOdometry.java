@@ -0,0 +1,130 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class keeps track of the pose of the robot on the field from the drive encoders. Every time
+ * the hardware snapshot is refreshed, the change in each encoder is turned into a movement of the
+ * robot with the mecanum forward kinematics and added onto the pose.
+ *
+ * Only changes in the encoders are used, so the pose is kept across encoder resets as long as
+ * rebase() is called after each reset. The latest pose is published for other threads, which can
+ * read it with getPose() at any time without locking.
+ *
+ * @author Arkin Solomon
+ */
+public class MecanumOdometry {
+
+    //Encoder positions at the last update
+    private final int[] lastPositions = new int[4];
+    private boolean hasPositions = false;
+
+    //Pose owned by the thread that updates it
+    private double x = 0;
+    private double y = 0;
+    private double heading = 0;
+
+    private final AtomicReference<Pose> pose = new AtomicReference<Pose>(new Pose(0, 0, 0, 0));
+
+    /**
+     * This method moves the pose by the change in the drive encoders since the last update. This is
+     * called from HardwareSPQR.refresh().
+     *
+     * @param snapshot The refreshed hardware snapshot.
+     */
+    void update(HardwareSnapshot snapshot) {
+        double mmPerTick = Drivetrain.mmPerTick;
+
+        //Travel of each wheel in millimeters, positive when pushing the robot forward
+        double lf = -this.delta(snapshot, HardwareSnapshot.LEFT_FRONT) * mmPerTick;
+        double rf = -this.delta(snapshot, HardwareSnapshot.RIGHT_FRONT) * mmPerTick;
+        double lb = -this.delta(snapshot, HardwareSnapshot.LEFT_BACK) * mmPerTick;
+        double rb = -this.delta(snapshot, HardwareSnapshot.RIGHT_BACK) * mmPerTick;
+        if (!this.hasPositions) {
+            this.hasPositions = true;
+            return;
+        }
+        if (lf == 0 && rf == 0 && lb == 0 && rb == 0) return;
+
+        //Mecanum forward kinematics
+        double k = Drivetrain.turnRadius;
+        double forward = (lf + rf + lb + rb) / 4;
+        double left = (-lf + rf + lb - rb) / 4 * Drivetrain.strafeEfficiency;
+        double turn = (-lf + rf - lb + rb) / (4 * k);
+
+        //Move along the heading halfway through the update
+        double midHeading = this.heading + turn / 2;
+        double cos = Math.cos(midHeading);
+        double sin = Math.sin(midHeading);
+        this.x += forward * cos - left * sin;
+        this.y += forward * sin + left * cos;
+        this.heading = Pose.normalize(this.heading + turn);
+        this.pose.lazySet(new Pose(this.x, this.y, this.heading, snapshot.getLastRefreshNanos()));
+    }
+
+    /**
+     * This method finds the velocity of each wheel for a velocity of the robot, with the mecanum
+     * inverse kinematics. It is the opposite of update().
+     *
+     * @param forward    The forward velocity of the robot in millimeters per second.
+     * @param left       The velocity to the left of the robot in millimeters per second.
+     * @param turn       The rate of turn in radians per second, counterclockwise.
+     * @param velocities The array that the velocity of each wheel is written into, in encoder
+     *                   units per second in the order of the hardware snapshot.
+     */
+    public void wheelVelocities(double forward, double left, double turn, double[] velocities) {
+        double ticksPerMm = Drivetrain.ticksPerMm;
+        double k = Drivetrain.turnRadius;
+        double sideways = left / Drivetrain.strafeEfficiency;
+
+        //Forward is negative on the encoders
+        velocities[HardwareSnapshot.LEFT_FRONT] = -(forward - sideways - k * turn) * ticksPerMm;
+        velocities[HardwareSnapshot.RIGHT_FRONT] = -(forward + sideways + k * turn) * ticksPerMm;
+        velocities[HardwareSnapshot.LEFT_BACK] = -(forward + sideways - k * turn) * ticksPerMm;
+        velocities[HardwareSnapshot.RIGHT_BACK] = -(forward - sideways + k * turn) * ticksPerMm;
+    }
+
+    /**
+     * This method finds the change in an encoder since the last update.
+     */
+    private int delta(HardwareSnapshot snapshot, int index) {
+        int position = snapshot.getPosition(index);
+        int delta = position - this.lastPositions[index];
+        this.lastPositions[index] = position;
+        return delta;
+    }
+
+    /**
+     * This method tells the odometry that the drive encoders were reset to zero. The snapshot
+     * should be refreshed just before resetting so that no movement is lost.
+     */
+    void rebase() {
+        for (int i = 0; i < 4; i++) {
+            this.lastPositions[i] = 0;
+        }
+    }
+
+    /**
+     * This method places the robot on the field, such as at its starting position or from a
+     * Vuforia fix. This should be called on the thread that refreshes the hardware.
+     *
+     * @param x       The x position in millimeters.
+     * @param y       The y position in millimeters.
+     * @param heading The heading in radians.
+     */
+    public void setPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = Pose.normalize(heading);
+        this.pose.set(new Pose(this.x, this.y, this.heading, System.nanoTime()));
+    }
+
+    /**
+     * This method returns the latest pose. It can be called from any thread.
+     *
+     * @return The pose of the robot.
+     */
+    public Pose getPose() {
+        return this.pose.get();
+    }
+}
@@ -0,0 +1,235 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is a desktop physics backend for HardwareSPQR. It simulates the four-wheel mecanum
+ * chassis, the arm and tow motors, the servos, and the color sensor over the field model, so that
+ * routes and controllers can be timed without the robot. Nothing moves until step() is called,
+ * so the simulation can run much faster than real time.
+ *
+ * The chassis uses the same conventions as the Vuforia field: millimeters, X forward and Y left
+ * of the robot, and the heading in radians counterclockwise.
+ *
+ * @author Arkin Solomon
+ */
+public class MecanumSimulator implements SPQRDevices {
+
+    /* Robot constants, from the real drivetrain */
+
+    //NeveRest 40 Gearmotor
+    public double ticksPerRevolution = Drivetrain.ticksPerRevolution;
+    public double maxTicksPerSecond = 2600;
+
+    public double wheelDiameter = Drivetrain.wheelDiameter;
+
+    //Wheel travel for each radian that the robot turns
+    public double turnRadius = Drivetrain.turnRadius;
+
+    //Fraction of the wheel speed that becomes sideways speed when strafing
+    public double strafeEfficiency = Drivetrain.strafeEfficiency;
+
+    //Distance from the center of the robot to the walls when touching them
+    public double robotRadius = 9 * 25.4;
+
+    //Drive motor names, the same as in the robot configuration
+    private static final String leftFrontName = "left_front_drive";
+    private static final String rightFrontName = "right_front_drive";
+    private static final String leftBackName = "left_back_drive";
+    private static final String rightBackName = "right_back_drive";
+
+    //A motor mounted on the left side spins the opposite way to move the robot the same way
+    private static final double leftMount = 1;
+    private static final double rightMount = -1;
+
+    private final FieldModel field;
+    private final Map<String, SimMotor> motors = new HashMap<String, SimMotor>();
+    private final Map<String, SimServo> servos = new HashMap<String, SimServo>();
+    private final Map<String, SimColorSensor> colorSensors = new HashMap<String, SimColorSensor>();
+    private final Map<String, SimImu> imus = new HashMap<String, SimImu>();
+
+    //Drive motors, kept separate so the chassis doesn't need to look them up each step
+    private final SimMotor leftFront;
+    private final SimMotor rightFront;
+    private final SimMotor leftBack;
+    private final SimMotor rightBack;
+
+    //Pose of the robot on the field
+    private double x = 0;
+    private double y = 0;
+    private double heading = 0;
+
+    //Velocity of the robot relative to itself in millimeters and radians per second
+    private double forwardVelocity = 0;
+    private double leftVelocity = 0;
+    private double turnVelocity = 0;
+
+    //Simulated time in nanoseconds
+    private long time = 0;
+
+    /**
+     * @param field The field that the robot is on.
+     */
+    public MecanumSimulator(FieldModel field) {
+        this.field = field;
+        this.leftFront = this.getMotor(leftFrontName);
+        this.rightFront = this.getMotor(rightFrontName);
+        this.leftBack = this.getMotor(leftBackName);
+        this.rightBack = this.getMotor(rightBackName);
+    }
+
+    /**
+     * This method creates a simulator on the Skystone field.
+     */
+    public MecanumSimulator() {
+        this(FieldModel.skystone());
+    }
+
+    /**
+     * This method moves every device and the chassis forward in time.
+     *
+     * @param dt The amount of time to move forward in seconds. This should be small, for example the
+     *           period of one control loop.
+     */
+    public synchronized void step(double dt) {
+        for (SimMotor motor : this.motors.values()) {
+            motor.step(dt);
+        }
+        for (SimServo servo : this.servos.values()) {
+            servo.step(dt);
+        }
+
+        //Linear speed of each wheel, positive when pushing the robot forward
+        double mmPerTick = Math.PI * this.wheelDiameter / this.ticksPerRevolution;
+        double lf = leftMount * this.leftFront.getShaftVelocity() * mmPerTick;
+        double rf = rightMount * this.rightFront.getShaftVelocity() * mmPerTick;
+        double lb = leftMount * this.leftBack.getShaftVelocity() * mmPerTick;
+        double rb = rightMount * this.rightBack.getShaftVelocity() * mmPerTick;
+
+        //Mecanum forward kinematics
+        double k = this.turnRadius;
+        this.forwardVelocity = (lf + rf + lb + rb) / 4;
+        this.leftVelocity = (-lf + rf + lb - rb) / 4 * this.strafeEfficiency;
+        this.turnVelocity = (-lf + rf - lb + rb) / (4 * k);
+
+        //Integrate the pose on the field using the heading halfway through the step
+        double midHeading = this.heading + this.turnVelocity * dt / 2;
+        double cos = Math.cos(midHeading);
+        double sin = Math.sin(midHeading);
+        this.x = FieldModel.clamp(this.x + (this.forwardVelocity * cos - this.leftVelocity * sin) * dt, this.robotRadius);
+        this.y = FieldModel.clamp(this.y + (this.forwardVelocity * sin + this.leftVelocity * cos) * dt, this.robotRadius);
+        this.heading = Pose.normalize(this.heading + this.turnVelocity * dt);
+
+        for (SimColorSensor sensor : this.colorSensors.values()) {
+            sensor.sample(this.field, this.x, this.y, this.heading);
+        }
+        for (SimImu imu : this.imus.values()) {
+            imu.sample(this.heading, dt);
+        }
+        this.time += (long) (dt * 1e9);
+    }
+
+    /**
+     * This method places the robot on the field.
+     *
+     * @param x       The x position in millimeters.
+     * @param y       The y position in millimeters.
+     * @param heading The heading in radians.
+     */
+    public synchronized void setPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = Pose.normalize(heading);
+    }
+
+    /**
+     * This method sets the simulated time that every read or write to a motor takes, which is used
+     * to test code against the cost of hub calls.
+     *
+     * @param latency The time in nanoseconds.
+     */
+    public synchronized void setLatency(long latency) {
+        for (SimMotor motor : this.motors.values()) {
+            motor.setLatency(latency);
+        }
+    }
+
+    public synchronized double getX() {
+        return this.x;
+    }
+
+    public synchronized double getY() {
+        return this.y;
+    }
+
+    public synchronized double getHeading() {
+        return this.heading;
+    }
+
+    /**
+     * @return The speed of the robot in millimeters per second.
+     */
+    public synchronized double getSpeed() {
+        return Math.hypot(this.forwardVelocity, this.leftVelocity);
+    }
+
+    /**
+     * @return The rate of turn of the robot in radians per second, counterclockwise.
+     */
+    public synchronized double getTurnVelocity() {
+        return this.turnVelocity;
+    }
+
+    /**
+     * @return The simulated time in nanoseconds.
+     */
+    public synchronized long getTime() {
+        return this.time;
+    }
+
+    public FieldModel getField() {
+        return this.field;
+    }
+
+    @Override
+    public synchronized SimMotor getMotor(String name) {
+        SimMotor motor = this.motors.get(name);
+        if (motor == null) {
+            motor = new SimMotor(this.maxTicksPerSecond, 0.08, 0.4, 0.01);
+            this.motors.put(name, motor);
+        }
+        return motor;
+    }
+
+    @Override
+    public synchronized SimServo getServo(String name) {
+        SimServo servo = this.servos.get(name);
+        if (servo == null) {
+            servo = new SimServo(3);
+            this.servos.put(name, servo);
+        }
+        return servo;
+    }
+
+    @Override
+    public synchronized SimColorSensor getColorSensor(String name) {
+        SimColorSensor sensor = this.colorSensors.get(name);
+        if (sensor == null) {
+            sensor = new SimColorSensor(0, 0);
+            this.colorSensors.put(name, sensor);
+        }
+        return sensor;
+    }
+
+    @Override
+    public synchronized SimImu getImu(String name) {
+        SimImu imu = this.imus.get(name);
+        if (imu == null) {
+            imu = new SimImu();
+            imu.sample(this.heading, 0);
+            this.imus.put(name, imu);
+        }
+        return imu;
+    }
+}
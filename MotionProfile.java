@@ -0,0 +1,200 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a jerk-limited (S-curve) motion profile for a move from rest to rest. The velocity
+ * rises to a peak, cruises and falls back to zero, with the acceleration and its rate of change
+ * kept under their limits so that the wheels don't slip. A move that is too short to reach the
+ * maximum velocity peaks lower. With no jerk limit the profile is trapezoidal.
+ *
+ * The profile is in any unit of distance, such as encoder units, and seconds. Sampling it doesn't
+ * allocate, so it can be done in every loop.
+ *
+ * @author Arkin Solomon
+ */
+public class MotionProfile implements Trajectory {
+
+    private final double distance;
+    private final double maxVelocity;
+    private final double maxAcceleration;
+    private final double maxJerk;
+
+    //Shape of the speeding up phase, the slowing down phase is the same reversed
+    private double peakVelocity = 0;
+    private double peakAcceleration = 0;
+    private double jerk = 0;
+    private double jerkTime = 0;
+    private double accelerationTime = 0;
+    private double accelerationDistance = 0;
+    private double cruiseTime = 0;
+    private double duration = 0;
+
+    /**
+     * @param distance        The length of the move, the profile always moves forward.
+     * @param maxVelocity     The largest velocity in units per second.
+     * @param maxAcceleration The largest acceleration in units per second squared.
+     * @param maxJerk         The largest rate of change of acceleration in units per second cubed,
+     *                        or zero for no limit.
+     */
+    public MotionProfile(double distance, double maxVelocity, double maxAcceleration, double maxJerk) {
+        this.distance = Math.abs(distance);
+        this.maxVelocity = Math.abs(maxVelocity);
+        this.maxAcceleration = Math.abs(maxAcceleration);
+        this.maxJerk = Math.abs(maxJerk);
+        if (this.distance == 0 || this.maxVelocity == 0 || this.maxAcceleration == 0) return;
+
+        //Find the highest peak velocity that can speed up and slow down within the distance
+        double peak = this.maxVelocity;
+        if (2 * this.shape(peak) > this.distance) {
+            double low = 0;
+            double high = peak;
+            for (int i = 0; i < 60; i++) {
+                double middle = (low + high) / 2;
+                if (2 * this.shape(middle) > this.distance) {
+                    high = middle;
+                } else {
+                    low = middle;
+                }
+            }
+            peak = low;
+        }
+        this.shape(peak);
+        this.cruiseTime = peak == 0 ? 0 : (this.distance - 2 * this.accelerationDistance) / peak;
+        this.duration = 2 * this.accelerationTime + this.cruiseTime;
+    }
+
+    /**
+     * This method sets up the speeding up phase for a peak velocity.
+     *
+     * @param peak The peak velocity.
+     * @return The distance covered while speeding up to the peak.
+     */
+    private double shape(double peak) {
+        this.peakVelocity = peak;
+        if (this.maxJerk == 0) {
+            this.peakAcceleration = this.maxAcceleration;
+            this.jerkTime = 0;
+            this.jerk = 0;
+            this.accelerationTime = peak / this.maxAcceleration;
+        } else if (peak >= this.maxAcceleration * this.maxAcceleration / this.maxJerk) {
+            this.peakAcceleration = this.maxAcceleration;
+            this.jerkTime = this.maxAcceleration / this.maxJerk;
+            this.jerk = this.maxJerk;
+            this.accelerationTime = peak / this.maxAcceleration + this.jerkTime;
+        } else {
+
+            //The acceleration never reaches its limit before it has to come back down
+            this.peakAcceleration = Math.sqrt(peak * this.maxJerk);
+            this.jerkTime = this.peakAcceleration / this.maxJerk;
+            this.jerk = this.maxJerk;
+            this.accelerationTime = 2 * this.jerkTime;
+        }
+
+        //The speeding up phase is symmetric, so the average velocity is half of the peak
+        this.accelerationDistance = peak * this.accelerationTime / 2;
+        return this.accelerationDistance;
+    }
+
+    /**
+     * This method samples the speeding up phase.
+     *
+     * @param t          The time since the start of the phase in seconds.
+     * @param derivative 0 for the position, 1 for the velocity and 2 for the acceleration.
+     * @return The value.
+     */
+    private double speedingUp(double t, int derivative) {
+        double constantTime = this.accelerationTime - 2 * this.jerkTime;
+        if (t < this.jerkTime) {
+            if (derivative == 0) return this.jerk * t * t * t / 6;
+            if (derivative == 1) return this.jerk * t * t / 2;
+            return this.jerk * t;
+        }
+        if (t < this.jerkTime + constantTime) {
+            double tau = t - this.jerkTime;
+            double startVelocity = this.peakAcceleration * this.jerkTime / 2;
+            double startPosition = this.peakAcceleration * this.jerkTime * this.jerkTime / 6;
+            if (derivative == 0) return startPosition + startVelocity * tau + this.peakAcceleration * tau * tau / 2;
+            if (derivative == 1) return startVelocity + this.peakAcceleration * tau;
+            return this.peakAcceleration;
+        }
+
+        //Measured back from the end of the phase
+        double u = Math.max(0, this.accelerationTime - t);
+        if (derivative == 0) return this.accelerationDistance - (this.peakVelocity * u - this.jerk * u * u * u / 6);
+        if (derivative == 1) return this.peakVelocity - this.jerk * u * u / 2;
+        return this.jerk * u;
+    }
+
+    /**
+     * This method samples the profile.
+     *
+     * @param t          The time since the start of the move in seconds.
+     * @param derivative 0 for the position, 1 for the velocity and 2 for the acceleration.
+     * @return The value.
+     */
+    private double sample(double t, int derivative) {
+        t = Math.max(0, Math.min(this.duration, t));
+        if (t < this.accelerationTime) return this.speedingUp(t, derivative);
+        if (t < this.accelerationTime + this.cruiseTime) {
+            if (derivative == 0) return this.accelerationDistance + this.peakVelocity * (t - this.accelerationTime);
+            if (derivative == 1) return this.peakVelocity;
+            return 0;
+        }
+        double u = this.duration - t;
+        if (derivative == 0) return this.distance - this.speedingUp(u, 0);
+        if (derivative == 1) return this.speedingUp(u, 1);
+        return -this.speedingUp(u, 2);
+    }
+
+    /**
+     * @param t The time since the start of the move in seconds.
+     * @return The distance that should have been covered.
+     */
+    @Override
+    public double getPosition(double t) {
+        if (t >= this.duration) return this.distance;
+        return this.sample(t, 0);
+    }
+
+    /**
+     * @param t The time since the start of the move in seconds.
+     * @return The velocity in units per second.
+     */
+    @Override
+    public double getVelocity(double t) {
+        return this.sample(t, 1);
+    }
+
+    /**
+     * @param t The time since the start of the move in seconds.
+     * @return The acceleration in units per second squared.
+     */
+    @Override
+    public double getAcceleration(double t) {
+        return this.sample(t, 2);
+    }
+
+    /**
+     * @return The time the move takes in seconds.
+     */
+    @Override
+    public double getDuration() {
+        return this.duration;
+    }
+
+    /**
+     * @return The time spent speeding up in seconds, which is also the time spent slowing down.
+     */
+    @Override
+    public double getAccelerationTime() {
+        return this.accelerationTime;
+    }
+
+    @Override
+    public double getDistance() {
+        return this.distance;
+    }
+
+    public double getPeakVelocity() {
+        return this.peakVelocity;
+    }
+}
@@ -0,0 +1,43 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This interface is what hosts an opmode when it isn't running on the robot controller. It replaces
+ * the lifecycle calls of the SDK (waitForStart, opModeIsActive, isStopRequested and sleep) and
+ * owns the clock, so a desktop host can run opmodes in simulated time.
+ *
+ * @author Arkin Solomon
+ */
+public interface OpModeRuntime {
+
+    /**
+     * @return The source of the devices of the robot.
+     */
+    SPQRDevices getDevices();
+
+    /**
+     * This method returns once the opmode is started.
+     */
+    void waitForStart();
+
+    /**
+     * @return True if the opmode is started and has not been stopped.
+     */
+    boolean isActive();
+
+    /**
+     * This method waits for an amount of time, or until the opmode is stopped.
+     *
+     * @param milliseconds The amount of time to wait.
+     */
+    void sleep(long milliseconds);
+
+    /**
+     * @return The current time of the runtime in nanoseconds.
+     */
+    long nanoTime();
+
+    /**
+     * This method is called once per iteration of every control loop.
+     */
+    void onLoop();
+}
@@ -0,0 +1,56 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class runs commands at the same time and finishes once all of them are finished. The
+ * commands should not write to the same devices.
+ *
+ * @author Arkin Solomon
+ */
+public class ParallelCommand implements Command {
+
+    private final Command[] commands;
+    private final boolean[] finished;
+
+    /**
+     * @param commands The commands to run together.
+     */
+    public ParallelCommand(Command... commands) {
+        this.commands = commands;
+        this.finished = new boolean[commands.length];
+    }
+
+    @Override
+    public void start(long now) {
+        for (int i = 0; i < this.commands.length; i++) {
+            this.finished[i] = false;
+            this.commands[i].start(now);
+        }
+    }
+
+    @Override
+    public void update(long now) {
+        for (int i = 0; i < this.commands.length; i++) {
+            if (this.finished[i]) continue;
+            this.commands[i].update(now);
+            if (this.commands[i].isFinished()) {
+                this.commands[i].end();
+                this.finished[i] = true;
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        for (boolean commandFinished : this.finished) {
+            if (!commandFinished) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void end() {
+        for (int i = 0; i < this.commands.length; i++) {
+            if (!this.finished[i]) this.commands[i].end();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.ArrayList;
+
+/**
+ * This class is a path across the field for PurePursuitFollower. It is a list of waypoints joined
+ * by straight lines, each with the heading the robot should turn to on the way to it and the speed
+ * to drive at on the way to it. The robot only stops at the last waypoint.
+ *
+ * Waypoints are in the coordinates of the odometry: millimeters from where the robot started, X
+ * forward and Y left.
+ *
+ * @author Arkin Solomon
+ */
+public class Path {
+
+    private final ArrayList<double[]> points = new ArrayList<double[]>();
+
+    /**
+     * This method adds a waypoint to the end of the path.
+     *
+     * @param x       The x position in millimeters.
+     * @param y       The y position in millimeters.
+     * @param heading The heading of the robot at the waypoint in degrees, counterclockwise.
+     * @param speed   A double between 0 and 1.0 which is the fraction of the top speed to drive at
+     *                on the way to the waypoint.
+     * @return This path, so that waypoints can be chained.
+     */
+    public Path add(double x, double y, double heading, double speed) {
+        this.points.add(new double[] {x, y, Math.toRadians(heading), Math.max(0, Math.min(1, Math.abs(speed)))});
+        return this;
+    }
+
+    /**
+     * @return The amount of waypoints.
+     */
+    public int size() {
+        return this.points.size();
+    }
+
+    public double getX(int index) {
+        return this.points.get(index)[0];
+    }
+
+    public double getY(int index) {
+        return this.points.get(index)[1];
+    }
+
+    /**
+     * @param index The index of the waypoint.
+     * @return The heading at the waypoint in radians.
+     */
+    public double getHeading(int index) {
+        return this.points.get(index)[2];
+    }
+
+    public double getSpeed(int index) {
+        return this.points.get(index)[3];
+    }
+}
@@ -0,0 +1,57 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a position and heading of the robot on the field at a point in time. It uses the
+ * same coordinates as Vuforia and the simulator: millimeters from the center of the field, and the
+ * heading in radians counterclockwise. A pose never changes, so it can be shared between threads
+ * without locking.
+ *
+ * @author Arkin Solomon
+ */
+public final class Pose {
+
+    public final double x;
+    public final double y;
+    public final double heading;
+
+    //Time the pose was measured in nanoseconds
+    public final long time;
+
+    /**
+     * @param x       The x position in millimeters.
+     * @param y       The y position in millimeters.
+     * @param heading The heading in radians.
+     * @param time    The time the pose was measured in nanoseconds.
+     */
+    public Pose(double x, double y, double heading, long time) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.time = time;
+    }
+
+    /**
+     * @param other Another pose.
+     * @return The distance between the positions in millimeters.
+     */
+    public double distanceTo(Pose other) {
+        return Math.hypot(other.x - this.x, other.y - this.y);
+    }
+
+    /**
+     * This method wraps an angle to be between -PI and PI.
+     *
+     * @param angle An angle in radians.
+     * @return The same angle between -PI and PI.
+     */
+    public static double normalize(double angle) {
+        while (angle > Math.PI) angle -= 2 * Math.PI;
+        while (angle < -Math.PI) angle += 2 * Math.PI;
+        return angle;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%.0f, %.0f) %.1f deg", this.x, this.y, Math.toDegrees(this.heading));
+    }
+}
@@ -0,0 +1,428 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class combines the wheel odometry with locations seen by the camera, using an extended
+ * Kalman filter on the position and heading of the robot. Every refresh, the movement of the robot
+ * since the last refresh is taken from the odometry and added onto the pose, which makes the pose
+ * less certain. A fix from the camera pulls the pose towards it by how certain each of them is.
+ *
+ * Fixes are stamped with the time the frame was taken, which is before they arrive. Every
+ * movement is kept in a short history, so a late fix is applied where the robot was when the frame
+ * was taken, and the movements after it are added on again. Between fixes the pose keeps following
+ * the odometry, so it doesn't jump when targets go out of view.
+ *
+ * Fixes can be added from any thread without waiting. They are applied on the thread that
+ * refreshes the hardware, and the latest pose is published for other threads, which can read it
+ * with getPose() at any time without locking.
+ *
+ * No opmode has both the camera and HardwareSPQR yet, so nothing gives the filter fixes and the
+ * robot doesn't make one unless an opmode sets HardwareSPQR.poseFusion and connects a
+ * VuforiaPoseTracker to it with setFusion(). test/PoseFusionCheck runs it on a simulated drive on
+ * the desktop.
+ *
+ * @author Arkin Solomon
+ */
+public class PoseFusion {
+
+    //Variance added to the pose by the odometry, in square millimeters per millimeter travelled,
+    //square radians per radian turned and square radians per millimeter travelled. The variance
+    //grows with the distance instead of with each update, so it doesn't depend on the loop rate
+    public double translationNoise = 2.5;
+    public double rotationNoise = 0.0025;
+    public double driftNoise = 0.000001;
+
+    //Standard deviation of a fix in millimeters and radians, used if a fix doesn't give its own
+    public double fixPositionNoise = 40;
+    public double fixHeadingNoise = Math.toRadians(3);
+
+    //Largest squared Mahalanobis distance of a fix from the pose that is applied, about 99.9% of
+    //good fixes with three degrees of freedom
+    public double gate = 16.3;
+
+    /**
+     * This class is a location seen by the camera and how certain it is.
+     */
+    private static class Fix {
+        final Pose pose;
+        final double positionNoise;
+        final double headingNoise;
+
+        Fix(Pose pose, double positionNoise, double headingNoise) {
+            this.pose = pose;
+            this.positionNoise = positionNoise;
+            this.headingNoise = headingNoise;
+        }
+    }
+
+    //Fixes waiting to be applied, added by any thread
+    private final ConcurrentLinkedQueue<Fix> fixes = new ConcurrentLinkedQueue<Fix>();
+
+    //History of movements and the state after each one, in a ring buffer
+    private final int capacity;
+    private final long[] times;
+    private final double[] forwards;
+    private final double[] lefts;
+    private final double[] turns;
+    private final double[] states;
+    private final double[] covariances;
+    private int newest = -1;
+    private int count = 0;
+
+    //State owned by the thread that refreshes the hardware
+    private final double[] state = new double[3];
+    private final double[] covariance = new double[9];
+    private Pose lastOdometry = null;
+    private long time = 0;
+
+    //Scratch space for the filter
+    private final double[] jacobian = new double[9];
+    private final double[] product = new double[9];
+    private final double[] gain = new double[9];
+    private final double[] savedState = new double[3];
+    private final double[] savedCovariance = new double[9];
+
+    private final AtomicReference<Pose> pose = new AtomicReference<Pose>(new Pose(0, 0, 0, 0));
+    private volatile long applied = 0;
+    private volatile long rejected = 0;
+
+    /**
+     * This creates a filter with a second of history at 100 refreshes a second.
+     */
+    public PoseFusion() {
+        this(128);
+    }
+
+    /**
+     * @param capacity The amount of movements to keep, which should be enough to cover the
+     *                 latency of the camera at the rate that the hardware is refreshed.
+     */
+    public PoseFusion(int capacity) {
+        this.capacity = capacity;
+        this.times = new long[capacity];
+        this.forwards = new double[capacity];
+        this.lefts = new double[capacity];
+        this.turns = new double[capacity];
+        this.states = new double[capacity * 3];
+        this.covariances = new double[capacity * 9];
+
+        //Nothing is known until a pose or a fix is given
+        this.setCovariance(10000, Math.PI);
+    }
+
+    /**
+     * This method places the robot on the field, such as at its starting position, and clears the
+     * history. The odometry is followed again from its next pose, so it can be moved at the same
+     * time. This should be called on the thread that refreshes the hardware.
+     *
+     * @param x       The x position in millimeters.
+     * @param y       The y position in millimeters.
+     * @param heading The heading in radians.
+     */
+    public void setPose(double x, double y, double heading) {
+        this.state[0] = x;
+        this.state[1] = y;
+        this.state[2] = Pose.normalize(heading);
+        this.setCovariance(10, Math.toRadians(1));
+        this.count = 0;
+        this.newest = -1;
+        this.lastOdometry = null;
+        this.time = System.nanoTime();
+        this.publish();
+    }
+
+    private void setCovariance(double position, double heading) {
+        for (int i = 0; i < 9; i++) {
+            this.covariance[i] = 0;
+        }
+        this.covariance[0] = position * position;
+        this.covariance[4] = position * position;
+        this.covariance[8] = heading * heading;
+    }
+
+    /**
+     * This method adds a location seen by the camera with the default certainty. It can be called
+     * from any thread and never waits.
+     *
+     * @param fix The pose of the robot, with the time the frame was taken from System.nanoTime().
+     */
+    public void addFix(Pose fix) {
+        this.addFix(fix, this.fixPositionNoise, this.fixHeadingNoise);
+    }
+
+    /**
+     * This method adds a location seen by the camera. It can be called from any thread and never
+     * waits.
+     *
+     * @param fix           The pose of the robot, with the time the frame was taken from
+     *                      System.nanoTime().
+     * @param positionNoise The standard deviation of the position in millimeters.
+     * @param headingNoise  The standard deviation of the heading in radians.
+     */
+    public void addFix(Pose fix, double positionNoise, double headingNoise) {
+        this.fixes.offer(new Fix(fix, positionNoise, headingNoise));
+    }
+
+    /**
+     * This method adds the movement of the odometry since the last update and then applies every
+     * fix that has arrived. This is called from HardwareSPQR.refresh().
+     *
+     * @param odometry The latest pose of the odometry.
+     */
+    void update(Pose odometry) {
+        boolean changed = false;
+        if (this.lastOdometry != null && odometry != this.lastOdometry) {
+
+            //Movement in the frame of the robot, so it doesn't matter where the odometry thinks
+            //the robot is
+            double dx = odometry.x - this.lastOdometry.x;
+            double dy = odometry.y - this.lastOdometry.y;
+            double turn = Pose.normalize(odometry.heading - this.lastOdometry.heading);
+            double midHeading = this.lastOdometry.heading + turn / 2;
+            double cos = Math.cos(midHeading);
+            double sin = Math.sin(midHeading);
+            double forward = dx * cos + dy * sin;
+            double left = -dx * sin + dy * cos;
+            this.predict(forward, left, turn);
+            this.time = odometry.time;
+            this.record(odometry.time, forward, left, turn);
+            changed = true;
+        }
+        this.lastOdometry = odometry;
+
+        Fix fix;
+        while ((fix = this.fixes.poll()) != null) {
+            changed |= this.apply(fix);
+        }
+        if (changed) this.publish();
+    }
+
+    /**
+     * This method applies one fix at the time it was taken and then adds the movements after it
+     * on again.
+     *
+     * @return True if the fix was applied.
+     */
+    private boolean apply(Fix fix) {
+        long fixTime = fix.pose.time;
+
+        //A fix newer than every movement is applied to the current state
+        if (this.count == 0 || fixTime >= this.times[this.newest]) {
+            return this.correct(fix);
+        }
+
+        //Find the newest movement at or before the fix
+        int back = 0;
+        int index = this.newest;
+        while (back < this.count && this.times[index] > fixTime) {
+            back++;
+            index = (index - 1 + this.capacity) % this.capacity;
+        }
+        if (back == this.count) {
+            this.rejected++;
+            return false;
+        }
+
+        //Go back to the state after that movement and apply the fix there
+        System.arraycopy(this.state, 0, this.savedState, 0, 3);
+        System.arraycopy(this.covariance, 0, this.savedCovariance, 0, 9);
+        System.arraycopy(this.states, index * 3, this.state, 0, 3);
+        System.arraycopy(this.covariances, index * 9, this.covariance, 0, 9);
+        if (!this.correct(fix)) {
+            System.arraycopy(this.savedState, 0, this.state, 0, 3);
+            System.arraycopy(this.savedCovariance, 0, this.covariance, 0, 9);
+            return false;
+        }
+        this.store(index);
+
+        //Add the movements since then on again
+        for (int i = 0; i < back; i++) {
+            index = (index + 1) % this.capacity;
+            this.predict(this.forwards[index], this.lefts[index], this.turns[index]);
+            this.store(index);
+        }
+        return true;
+    }
+
+    /**
+     * This method moves the state by a movement in the frame of the robot and makes it less
+     * certain.
+     */
+    private void predict(double forward, double left, double turn) {
+        double midHeading = this.state[2] + turn / 2;
+        double cos = Math.cos(midHeading);
+        double sin = Math.sin(midHeading);
+        double dx = forward * cos - left * sin;
+        double dy = forward * sin + left * cos;
+        this.state[0] += dx;
+        this.state[1] += dy;
+        this.state[2] = Pose.normalize(this.state[2] + turn);
+
+        //P = F P F^T + Q, where F is the change in the state from a change in heading
+        double[] f = this.jacobian;
+        f[0] = 1;
+        f[1] = 0;
+        f[2] = -dy;
+        f[3] = 0;
+        f[4] = 1;
+        f[5] = dx;
+        f[6] = 0;
+        f[7] = 0;
+        f[8] = 1;
+        multiply(f, this.covariance, this.product, false);
+        multiply(this.product, f, this.covariance, true);
+        double distance = Math.hypot(forward, left);
+        this.covariance[0] += this.translationNoise * distance;
+        this.covariance[4] += this.translationNoise * distance;
+        this.covariance[8] += this.rotationNoise * Math.abs(turn) + this.driftNoise * distance;
+    }
+
+    /**
+     * This method pulls the state towards a fix if it passes the gate.
+     *
+     * @return True if the fix was applied.
+     */
+    private boolean correct(Fix fix) {
+        double[] p = this.covariance;
+
+        //S = P + R, the fix measures the whole state
+        double positionVariance = fix.positionNoise * fix.positionNoise;
+        double headingVariance = fix.headingNoise * fix.headingNoise;
+        double[] s = this.product;
+        System.arraycopy(p, 0, s, 0, 9);
+        s[0] += positionVariance;
+        s[4] += positionVariance;
+        s[8] += headingVariance;
+        double[] inverse = this.jacobian;
+        if (!invert(s, inverse)) {
+            this.rejected++;
+            return false;
+        }
+
+        double ex = fix.pose.x - this.state[0];
+        double ey = fix.pose.y - this.state[1];
+        double eh = Pose.normalize(fix.pose.heading - this.state[2]);
+        double distance = ex * (inverse[0] * ex + inverse[1] * ey + inverse[2] * eh)
+                + ey * (inverse[3] * ex + inverse[4] * ey + inverse[5] * eh)
+                + eh * (inverse[6] * ex + inverse[7] * ey + inverse[8] * eh);
+        if (distance > this.gate) {
+            this.rejected++;
+            return false;
+        }
+
+        //K = P S^-1, x = x + K e, P = (I - K) P
+        multiply(p, inverse, this.gain, false);
+        double[] k = this.gain;
+        this.state[0] += k[0] * ex + k[1] * ey + k[2] * eh;
+        this.state[1] += k[3] * ex + k[4] * ey + k[5] * eh;
+        this.state[2] = Pose.normalize(this.state[2] + k[6] * ex + k[7] * ey + k[8] * eh);
+        multiply(k, p, this.product, false);
+        for (int i = 0; i < 9; i++) {
+            p[i] -= this.product[i];
+        }
+
+        //Keep the covariance symmetric against rounding
+        p[1] = p[3] = (p[1] + p[3]) / 2;
+        p[2] = p[6] = (p[2] + p[6]) / 2;
+        p[5] = p[7] = (p[5] + p[7]) / 2;
+        this.applied++;
+        return true;
+    }
+
+    /**
+     * This method adds a movement to the history with the state after it.
+     */
+    private void record(long time, double forward, double left, double turn) {
+        this.newest = (this.newest + 1) % this.capacity;
+        this.times[this.newest] = time;
+        this.forwards[this.newest] = forward;
+        this.lefts[this.newest] = left;
+        this.turns[this.newest] = turn;
+        this.store(this.newest);
+        if (this.count < this.capacity) this.count++;
+    }
+
+    private void store(int index) {
+        System.arraycopy(this.state, 0, this.states, index * 3, 3);
+        System.arraycopy(this.covariance, 0, this.covariances, index * 9, 9);
+    }
+
+    private void publish() {
+        this.pose.set(new Pose(this.state[0], this.state[1], this.state[2], this.time));
+    }
+
+    /**
+     * This method multiplies two 3 by 3 matrices.
+     *
+     * @param transposeB True to multiply by the transpose of b.
+     */
+    private static void multiply(double[] a, double[] b, double[] result, boolean transposeB) {
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                double sum = 0;
+                for (int i = 0; i < 3; i++) {
+                    sum += a[row * 3 + i] * (transposeB ? b[column * 3 + i] : b[i * 3 + column]);
+                }
+                result[row * 3 + column] = sum;
+            }
+        }
+    }
+
+    /**
+     * This method inverts a 3 by 3 matrix.
+     *
+     * @return False if the matrix can't be inverted.
+     */
+    private static boolean invert(double[] m, double[] result) {
+        double c0 = m[4] * m[8] - m[5] * m[7];
+        double c1 = m[5] * m[6] - m[3] * m[8];
+        double c2 = m[3] * m[7] - m[4] * m[6];
+        double determinant = m[0] * c0 + m[1] * c1 + m[2] * c2;
+        if (Math.abs(determinant) < 1e-12) return false;
+        result[0] = c0 / determinant;
+        result[1] = (m[2] * m[7] - m[1] * m[8]) / determinant;
+        result[2] = (m[1] * m[5] - m[2] * m[4]) / determinant;
+        result[3] = c1 / determinant;
+        result[4] = (m[0] * m[8] - m[2] * m[6]) / determinant;
+        result[5] = (m[2] * m[3] - m[0] * m[5]) / determinant;
+        result[6] = c2 / determinant;
+        result[7] = (m[1] * m[6] - m[0] * m[7]) / determinant;
+        result[8] = (m[0] * m[4] - m[1] * m[3]) / determinant;
+        return true;
+    }
+
+    /**
+     * This method returns the latest pose. It can be called from any thread.
+     *
+     * @return The pose of the robot on the field.
+     */
+    public Pose getPose() {
+        return this.pose.get();
+    }
+
+    /**
+     * This method returns how uncertain the position is. This should only be called on the thread
+     * that refreshes the hardware.
+     *
+     * @return The standard deviation of the position in millimeters, combined over x and y.
+     */
+    public double getPositionUncertainty() {
+        return Math.sqrt(this.covariance[0] + this.covariance[4]);
+    }
+
+    /**
+     * @return The amount of fixes that were applied.
+     */
+    public long getAppliedFixes() {
+        return this.applied;
+    }
+
+    /**
+     * @return The amount of fixes that were too old or too far from the pose to be applied.
+     */
+    public long getRejectedFixes() {
+        return this.rejected;
+    }
+}
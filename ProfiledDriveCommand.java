@@ -0,0 +1,91 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This class moves the drive motors to encoder targets along a motion profile instead of at one
+ * constant power. The motors run with their velocity controllers, and every loop each wheel is
+ * given the power for the velocity and acceleration of the profile plus a correction for how far
+ * it is from where the profile says it should be. The robot speeds up without slipping and slows
+ * down onto the target, so full speed moves don't need a slow segment at the end.
+ *
+ * Every wheel follows the same profile scaled by its target, so targets of different sizes still
+ * arrive together.
+ *
+ * @author Arkin Solomon
+ */
+public class ProfiledDriveCommand extends DriveCommand {
+
+    //Power per encoder unit per second, equal to one over the top speed of the motors
+    public double kV = 1.0 / 2600;
+
+    //Power per encoder unit per second squared
+    public double kA = 0.00002;
+
+    //Power per encoder unit of error from the profile
+    public double kP = 0.004;
+
+    //Largest error in encoder units that counts as being at the target
+    public int tolerance = 10;
+
+    //Time to keep correcting after the profile ends before giving up, in nanoseconds
+    public long settleTime = 500000000;
+
+    private final Trajectory profile;
+    private long startTime = 0;
+    private boolean finished = false;
+
+    /**
+     * @param opMode  The opmode that keeps the total encoder counts of the robot.
+     * @param targets The target position of each drive motor in encoder units, in the order of the
+     *                hardware snapshot.
+     * @param profile The profile of the largest target.
+     */
+    public ProfiledDriveCommand(SPQRLinearOpMode opMode, int[] targets, Trajectory profile) {
+        super(opMode, targets, new double[4]);
+        this.profile = profile;
+    }
+
+    @Override
+    public void start(long now) {
+        this.previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
+        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        this.opMode.resetEncoders(DcMotor.RunMode.RUN_USING_ENCODER);
+        this.robot.setPowers(0);
+        this.startTime = now;
+        this.finished = this.profile.getDistance() == 0;
+    }
+
+    @Override
+    public void update(long now) {
+        double t = (now - this.startTime) / 1e9;
+        double position = this.profile.getPosition(t);
+        double feedForward = this.kV * this.profile.getVelocity(t) + this.kA * this.profile.getAcceleration(t);
+        double largestError = 0;
+        for (int i = 0; i < 4; i++) {
+            double scale = this.targets[i] / this.profile.getDistance();
+            double error = scale * position - this.robot.snapshot.getPosition(i);
+            largestError = Math.max(largestError, Math.abs(error));
+            this.powers[i] = Math.max(-1, Math.min(1, scale * feedForward + this.kP * error));
+        }
+        this.robot.leftFrontDrive.setPower(this.powers[HardwareSnapshot.LEFT_FRONT]);
+        this.robot.rightFrontDrive.setPower(this.powers[HardwareSnapshot.RIGHT_FRONT]);
+        this.robot.leftBackDrive.setPower(this.powers[HardwareSnapshot.LEFT_BACK]);
+        this.robot.rightBackDrive.setPower(this.powers[HardwareSnapshot.RIGHT_BACK]);
+
+        //Finished once the profile is over and every wheel is on its target
+        long ended = now - this.startTime - (long) (this.profile.getDuration() * 1e9);
+        this.finished = ended >= 0 && (largestError <= this.tolerance || ended >= this.settleTime);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    @Override
+    public void end() {
+        this.robot.setPowers(0);
+        this.robot.setDriveZeroPowerBehavior(this.previousBehavior);
+    }
+}
@@ -0,0 +1,196 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This class drives the robot along a Path without stopping at the waypoints in between. Every loop
+ * it finds where the robot is along the path from the odometry and steers towards the point a
+ * lookahead distance further along (pure pursuit). The mecanum chassis drives towards that point
+ * and turns to the heading of the next waypoint at the same time, so corners are rounded off
+ * instead of being made of a stop, a strafe and another stop.
+ *
+ * The speed ramps up from rest, and is lowered near the end of the path so that the robot slows
+ * down onto the last waypoint, where it stops.
+ *
+ * @author Arkin Solomon
+ */
+public class PurePursuitFollower implements Command {
+
+    //Distance along the path to steer towards in millimeters
+    public double lookahead = 200;
+
+    //Top speed in millimeters per second, acceleration and deceleration in millimeters per second
+    //squared
+    public double maxVelocity = 700;
+    public double acceleration = 1500;
+    public double deceleration = 1200;
+
+    //Speed per millimeter from the last waypoint, so that the robot settles onto it
+    public double kP = 4;
+
+    //Rate of turn per radian of heading error and the largest rate of turn in radians per second
+    public double kHeading = 3;
+    public double maxTurnRate = 2;
+
+    //Top speed of the drive motors in encoder units per second
+    public double maxWheelVelocity = 2600;
+
+    //Largest distance and heading error that count as being at the last waypoint
+    public double tolerance = 5;
+    public double headingTolerance = Math.toRadians(2);
+
+    private final SPQRLinearOpMode opMode;
+    private final HardwareSPQR robot;
+    private final Path path;
+    private final double[] velocities = new double[4];
+    private DcMotor.ZeroPowerBehavior previousBehavior = null;
+
+    //Points of the path starting with where the robot was, and the distance along the path to each
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] along;
+
+    private int segment = 1;
+    private double speed = 0;
+    private long startTime = 0;
+    private long lastTime = 0;
+    private long timeout = 0;
+    private boolean finished = false;
+
+    /**
+     * @param opMode The opmode that keeps the total encoder counts of the robot.
+     * @param path   The path to follow.
+     */
+    public PurePursuitFollower(SPQRLinearOpMode opMode, Path path) {
+        this.opMode = opMode;
+        this.robot = opMode.robot;
+        this.path = path;
+        this.xs = new double[path.size() + 1];
+        this.ys = new double[path.size() + 1];
+        this.along = new double[path.size() + 1];
+    }
+
+    @Override
+    public void start(long now) {
+        this.previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
+        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        this.opMode.resetEncoders(DcMotor.RunMode.RUN_USING_ENCODER);
+        this.robot.setPowers(0);
+
+        //The path starts from wherever the robot is
+        Pose pose = this.robot.odometry.getPose();
+        this.xs[0] = pose.x;
+        this.ys[0] = pose.y;
+        double slowest = 1;
+        for (int i = 1; i < this.xs.length; i++) {
+            this.xs[i] = this.path.getX(i - 1);
+            this.ys[i] = this.path.getY(i - 1);
+            this.along[i] = this.along[i - 1] + Math.hypot(this.xs[i] - this.xs[i - 1], this.ys[i] - this.ys[i - 1]);
+            slowest = Math.min(slowest, Math.max(0.1, this.path.getSpeed(i - 1)));
+        }
+
+        //Give up after twice the time the path should take at its slowest speed, plus time to settle
+        this.timeout = (long) ((2 * this.getLength() / (slowest * this.maxVelocity) + 2) * 1e9);
+        this.segment = 1;
+        this.speed = 0;
+        this.startTime = now;
+        this.lastTime = now;
+        this.finished = this.path.size() == 0;
+    }
+
+    @Override
+    public void update(long now) {
+        if (this.path.size() == 0) return;
+        double dt = (now - this.lastTime) / 1e9;
+        this.lastTime = now;
+        Pose pose = this.robot.odometry.getPose();
+        int last = this.xs.length - 1;
+
+        //Move on to the next segment once the robot is past the end of this one
+        double t = this.project(pose, this.segment);
+        while (t >= 1 && this.segment < last) {
+            this.segment++;
+            t = this.project(pose, this.segment);
+        }
+        double length = this.along[this.segment] - this.along[this.segment - 1];
+        double position = this.along[this.segment - 1] + t * length;
+
+        //Steer towards the point a lookahead distance further along the path
+        double target = Math.min(position + this.lookahead, this.getLength());
+        int index = this.segment;
+        while (index < last && this.along[index] < target) {
+            index++;
+        }
+        double span = this.along[index] - this.along[index - 1];
+        double fraction = span == 0 ? 1 : (target - this.along[index - 1]) / span;
+        double dx = this.xs[index - 1] + fraction * (this.xs[index] - this.xs[index - 1]) - pose.x;
+        double dy = this.ys[index - 1] + fraction * (this.ys[index] - this.ys[index - 1]) - pose.y;
+        double distance = Math.hypot(dx, dy);
+
+        //Speed up from rest and slow down onto the last waypoint
+        double toEnd = Math.max(this.getLength() - position, Math.hypot(this.xs[last] - pose.x, this.ys[last] - pose.y));
+        double speed = this.path.getSpeed(this.segment - 1) * this.maxVelocity;
+        speed = Math.min(speed, Math.sqrt(2 * this.deceleration * toEnd));
+        speed = Math.min(speed, this.speed + this.acceleration * dt);
+        if (this.segment == last && toEnd < this.lookahead) speed = Math.min(speed, this.kP * toEnd);
+        this.speed = speed;
+        double vx = distance == 0 ? 0 : dx / distance * speed;
+        double vy = distance == 0 ? 0 : dy / distance * speed;
+
+        //Turn towards the heading of the waypoint being driven to
+        double headingError = Pose.normalize(this.path.getHeading(this.segment - 1) - pose.heading);
+        double turn = Math.max(-this.maxTurnRate, Math.min(this.maxTurnRate, this.kHeading * headingError));
+
+        //Velocity in the frame of the robot
+        double cos = Math.cos(pose.heading);
+        double sin = Math.sin(pose.heading);
+        this.robot.odometry.wheelVelocities(vx * cos + vy * sin, -vx * sin + vy * cos, turn, this.velocities);
+
+        //Scale every wheel down together if one is faster than the motors can go
+        double largest = this.maxWheelVelocity;
+        for (double velocity : this.velocities) {
+            largest = Math.max(largest, Math.abs(velocity));
+        }
+        this.robot.leftFrontDrive.setPower(this.velocities[HardwareSnapshot.LEFT_FRONT] / largest);
+        this.robot.rightFrontDrive.setPower(this.velocities[HardwareSnapshot.RIGHT_FRONT] / largest);
+        this.robot.leftBackDrive.setPower(this.velocities[HardwareSnapshot.LEFT_BACK] / largest);
+        this.robot.rightBackDrive.setPower(this.velocities[HardwareSnapshot.RIGHT_BACK] / largest);
+
+        boolean arrived = this.segment == last && toEnd <= this.tolerance && Math.abs(headingError) <= this.headingTolerance;
+        this.finished = arrived || now - this.startTime >= this.timeout;
+    }
+
+    /**
+     * This method finds how far along a segment the robot is.
+     *
+     * @param pose    The pose of the robot.
+     * @param segment The index of the point at the end of the segment.
+     * @return The fraction of the segment between 0 and 1, 1 if the segment has no length.
+     */
+    private double project(Pose pose, int segment) {
+        double sx = this.xs[segment] - this.xs[segment - 1];
+        double sy = this.ys[segment] - this.ys[segment - 1];
+        double squared = sx * sx + sy * sy;
+        if (squared == 0) return 1;
+        double t = ((pose.x - this.xs[segment - 1]) * sx + (pose.y - this.ys[segment - 1]) * sy) / squared;
+        return Math.max(0, Math.min(1, t));
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    @Override
+    public void end() {
+        this.robot.setPowers(0);
+        this.robot.setDriveZeroPowerBehavior(this.previousBehavior);
+    }
+
+    /**
+     * @return The length of the path from where the robot started in millimeters.
+     */
+    public double getLength() {
+        return this.along[this.along.length - 1];
+    }
+}
@@ -0,0 +1,134 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.HashMap;
+import java.util.regex.Pattern;
+
+/**
+ * This class is a route from our path generator compiled into a Path that PurePursuitFollower can
+ * drive. The generator exports a route as a base64 TOKEN, which decodes to:
+ *
+ *     name<>display name#<$>#x/~?~/y/~?~/speed#<$>#x/~?~/y/~?~/speed...
+ *
+ * where each waypoint is in the units of the generator's field drawing, with Y to the left of X.
+ * The robot is taken to start on the first waypoint facing the second, so the route is moved and
+ * turned into the coordinates of the odometry at the start of the routine. The speed of each
+ * waypoint is the speed of the leg to it.
+ *
+ * Compiling is done in init, and compiled routes are kept for as long as the app runs, so starting
+ * a routine doesn't spend any time decoding.
+ *
+ * @author Arkin Solomon
+ */
+public final class RoutePlan {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    //Separators of the decoded token
+    private static final String NAME_SEPARATOR = "<>";
+    private static final String WAYPOINT_SEPARATOR = "#<$>#";
+    private static final String FIELD_SEPARATOR = "/~?~/";
+
+    //Compiled routes by token and scale
+    private static final HashMap<String, RoutePlan> cache = new HashMap<String, RoutePlan>();
+
+    public final String name;
+    public final String displayName;
+    private final Path path;
+
+    private RoutePlan(String name, String displayName, Path path) {
+        this.name = name;
+        this.displayName = displayName;
+        this.path = path;
+    }
+
+    /**
+     * This method compiles a route, or returns it from the cache if it was already compiled.
+     *
+     * @param token     The TOKEN exported by the path generator.
+     * @param mmPerUnit The amount of millimeters in one unit of the generator.
+     * @return The compiled route.
+     * @throws IllegalArgumentException If the token isn't a route.
+     */
+    public static synchronized RoutePlan compile(String token, double mmPerUnit) {
+        String key = token + "@" + mmPerUnit;
+        RoutePlan plan = cache.get(key);
+        if (plan == null) {
+            plan = parse(decode(token.trim()), mmPerUnit);
+            cache.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * This method compiles a decoded route.
+     */
+    static RoutePlan parse(String route, double mmPerUnit) {
+        String[] parts = route.split(Pattern.quote(WAYPOINT_SEPARATOR));
+        int nameEnd = parts[0].indexOf(NAME_SEPARATOR);
+        if (nameEnd < 0) throw new IllegalArgumentException("Route has no name: " + parts[0]);
+        if (parts.length < 2) throw new IllegalArgumentException("Route has no waypoints");
+        String name = parts[0].substring(0, nameEnd);
+        String displayName = parts[0].substring(nameEnd + NAME_SEPARATOR.length());
+
+        double[][] waypoints = new double[parts.length - 1][];
+        for (int i = 1; i < parts.length; i++) {
+            String waypoint = parts[i];
+            String[] fields = waypoint.split(Pattern.quote(FIELD_SEPARATOR));
+            if (fields.length != 3) throw new IllegalArgumentException("Bad waypoint: " + waypoint);
+            try {
+                waypoints[i - 1] = new double[] {Double.parseDouble(fields[0]), Double.parseDouble(fields[1]), Double.parseDouble(fields[2])};
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad waypoint: " + waypoint, e);
+            }
+        }
+
+        //Start on the first waypoint facing the second
+        double[] start = waypoints[0];
+        double angle = 0;
+        for (int i = 1; i < waypoints.length; i++) {
+            if (waypoints[i][0] != start[0] || waypoints[i][1] != start[1]) {
+                angle = Math.atan2(waypoints[i][1] - start[1], waypoints[i][0] - start[0]);
+                break;
+            }
+        }
+        double cos = Math.cos(-angle);
+        double sin = Math.sin(-angle);
+        Path path = new Path();
+        for (int i = 1; i < waypoints.length; i++) {
+            double dx = waypoints[i][0] - start[0];
+            double dy = waypoints[i][1] - start[1];
+            path.add((dx * cos - dy * sin) * mmPerUnit, (dx * sin + dy * cos) * mmPerUnit, 0, waypoints[i][2]);
+        }
+        return new RoutePlan(name, displayName, path);
+    }
+
+    /**
+     * This method decodes base64 with or without padding.
+     */
+    static String decode(String token) {
+        StringBuilder decoded = new StringBuilder(token.length() * 3 / 4);
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '=') break;
+            int value = ALPHABET.indexOf(c);
+            if (value < 0) throw new IllegalArgumentException("Token isn't base64 at " + i);
+            buffer = (buffer << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                decoded.append((char) ((buffer >> bits) & 0xFF));
+            }
+        }
+        return decoded.toString();
+    }
+
+    /**
+     * @return The route as waypoints in millimeters from where the robot starts. The path is
+     * shared, so it shouldn't be added to.
+     */
+    public Path getPath() {
+        return this.path;
+    }
+}
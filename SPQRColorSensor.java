@@ -0,0 +1,37 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This interface is every color sensor function the robot uses. It is implemented by the color
+ * sensor on the robot (FtcDevices) and by the simulated color sensor (SimColorSensor).
+ *
+ * @author Arkin Solomon
+ */
+public interface SPQRColorSensor {
+
+    int red();
+
+    int green();
+
+    int blue();
+
+    void enableLed(boolean enable);
+
+    /**
+     * This method reads every channel at once, in one transaction on the robot.
+     *
+     * @param values An array with four indexes which the reading is written to in the format
+     *               {RED, GREEN, BLUE, PROXIMITY}.
+     */
+    void read(int[] values);
+
+    /**
+     * This method sets how the light sensor measures. A longer integration time gives more
+     * resolution, and a shorter one gives new measurements more often.
+     *
+     * @param gain              The gain of the light sensor, 1, 3, 6, 9 or 18.
+     * @param integrationMillis The integration time in milliseconds, 3, 25, 50, 100, 200 or 400.
+     * @return The average time in nanoseconds from the middle of a measurement until it is read,
+     * which is the age of a reading.
+     */
+    long configure(int gain, int integrationMillis);
+}
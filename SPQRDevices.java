@@ -0,0 +1,34 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This interface is where HardwareSPQR gets its devices from. The robot uses FtcDevices, which
+ * reads the hardware map, and the desktop uses MecanumSimulator.
+ *
+ * @author Arkin Solomon
+ */
+public interface SPQRDevices {
+
+    /**
+     * @param name The name of the motor in the robot configuration.
+     * @return The motor with the given name.
+     */
+    SPQRMotor getMotor(String name);
+
+    /**
+     * @param name The name of the servo in the robot configuration.
+     * @return The servo with the given name.
+     */
+    SPQRServo getServo(String name);
+
+    /**
+     * @param name The name of the color sensor in the robot configuration.
+     * @return The color sensor with the given name.
+     */
+    SPQRColorSensor getColorSensor(String name);
+
+    /**
+     * @param name The name of the IMU in the robot configuration.
+     * @return The IMU with the given name.
+     */
+    SPQRImu getImu(String name);
+}
@@ -0,0 +1,24 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This interface is every IMU function the robot uses. It is implemented by the IMUs in the REV
+ * hubs (FtcDevices) and by the simulated IMU (SimImu).
+ *
+ * @author Arkin Solomon
+ */
+public interface SPQRImu {
+
+    /**
+     * This method starts the IMU. This can take a long time, so it shouldn't be called from a
+     * control loop.
+     *
+     * @return True if the IMU started.
+     */
+    boolean initialize();
+
+    /**
+     * @return The heading since the IMU was initialized in radians, counterclockwise, between -PI
+     * and PI.
+     */
+    double getHeading();
+}
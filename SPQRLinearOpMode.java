@@ -2,7 +2,11 @@ package org.firstinspires.ftc.teamcode;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
 
 /**
  * Custom Linear OpMode class with extra functions.
@@ -22,10 +26,14 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
     public final double degppr = 21.1;
     public final double circleRadius = 245.7768;
 
-    //Values for the wheels
+    //Values for the wheels. These aren't the real drivetrain (see Drivetrain), but the distances of
+    //the routines were tuned with them, so they set the units of drive() and strafe()
     private final double wheelRadius = 5*25.4;
     private final double wheelCircumference = wheelRadius * 2 * Math.PI;
 
+    //Millimeters in one unit of drive() and strafe() on the real drivetrain
+    public final double driveUnit = ppr / wheelCircumference * Drivetrain.mmPerTick;
+
     private int leftFrontEncoder;
     private int rightFrontEncoder;
     private int leftBackEncoder;
@@ -33,11 +41,211 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
 
     public HardwareSPQR robot = new HardwareSPQR();
 
+    //Limits of the profiled drive and strafe moves in encoder units per second, per second squared
+    //and per second cubed
+    public double profileVelocity = 2400;
+    public double profileAcceleration = 6000;
+    public double profileJerk = 40000;
+
+    //Power to drive forward at while looking for the tape
+    public double tapeSpeed = 0.6;
+
+    //Limits of the profiled turns in radians per second, per second squared and per second cubed
+    public double turnVelocity = 1.8;
+    public double turnAcceleration = 6;
+    public double turnJerk = 40;
+
+    //Millimeters in one unit of the path generator, from LinePark where a 168 unit leg was
+    //transcribed as drive(3000)
+    public double routeMmPerUnit = 3000 * driveUnit / 168;
+
+    //Telemetry is sent on its own thread this many times per second
+    public double telemetryRate = 8;
+    public TelemetryPublisher publisher = null;
+    private int distanceSlot;
+    private int velocitySlot;
+    private int targetSlot;
+    private int tempEncoderSlot;
+    private int encoderSlot;
+    private int snapshotSlot;
+    private int poseSlot;
+    private int headingSlot;
+    private int turnSlot;
+
+    //Segments queued between beginBlend() and endBlend(), null when not blending
+    private BlendedDriveCommand blend = null;
+
+    //Last profiled turn, shown in the telemetry
+    private TurnCommand lastTurn = null;
+
+    //Timing of the loops that wait on the robot, logged when the opmode stops
+    public LoopStats loopStats = new LoopStats(getClass().getSimpleName());
+
+    //Sampled profiles of the moves of the routine, loaded in init and saved when they change
+    public TrajectoryCache trajectories = new TrajectoryCache();
+
+    //Runs commands together from the loop in run()
+    public CommandScheduler scheduler = new CommandScheduler();
+
+    //Host of the opmode when it isn't running on the robot controller, such as DesktopRuntime
+    OpModeRuntime runtime = null;
+
+    //True for the instance that prepareTrajectories() runs in the simulator
+    boolean dryRun = false;
+
     /**
      * This method is an abstraction to initialize the hardware of the robot.
      */
     public void hardwareInit(){
+        if (this.runtime != null) {
+            this.robot.init(this.runtime.getDevices());
+            if (!this.dryRun) this.prepareTrajectories();
+            return;
+        }
         this.robot.init(hardwareMap);
+        File file = this.trajectoryFile();
+        this.trajectories.load(file);
+        this.prepareTrajectories();
+        if (this.trajectories.isChanged()) this.trajectories.save(file);
+        this.startTelemetry();
+    }
+
+    /**
+     * This method is called by hardwareInit() so that every profiled move of the routine is loaded
+     * or computed before the start. It runs a new instance of the routine in the simulator with the
+     * same trajectory cache, so every move the routine makes asks for its profile without a second
+     * list of the moves to keep up to date.
+     */
+    public void prepareTrajectories(){
+        SPQRLinearOpMode dryRun;
+        try {
+            dryRun = getClass().newInstance();
+        } catch (Exception e) {
+            RobotLog.ww("SPQRLinearOpMode", "Can't run %s in the simulator, its moves will be computed after the start", getClass().getSimpleName());
+            return;
+        }
+        dryRun.dryRun = true;
+        dryRun.trajectories = this.trajectories;
+        new DesktopRuntime(new MecanumSimulator()).runAutonomous(dryRun);
+    }
+
+    /**
+     * This method returns the file that the trajectories of this routine are kept in on the robot
+     * controller.
+     *
+     * @return The file, named after the class of the opmode.
+     */
+    public File trajectoryFile(){
+        return new File(new File(AppUtil.FIRST_FOLDER, "trajectories"), getClass().getSimpleName() + ".bin");
+    }
+
+    /**
+     * This method waits for the opmode to be started, either by the driver station or by the
+     * runtime hosting the opmode.
+     */
+    @Override
+    public synchronized void waitForStart(){
+        if (!this.dryRun) this.trajectories.markStarted();
+        if (this.runtime != null) {
+            this.runtime.waitForStart();
+            return;
+        }
+        super.waitForStart();
+    }
+
+    /**
+     * This method is an abstraction that should be used in place of opModeIsActive() and
+     * isStopRequested() so that the opmode can also be run by a runtime on the desktop.
+     *
+     * @return True if the opmode is started and has not been stopped.
+     */
+    public boolean isActive(){
+        if (this.runtime != null) return this.runtime.isActive();
+        return opModeIsActive() && !isStopRequested();
+    }
+
+    /**
+     * This method is an abstraction that should be used in place of sleep() so that the opmode can
+     * also be run by a runtime on the desktop, where time is simulated.
+     *
+     * @param milliseconds The amount of time to wait.
+     */
+    public void pause(long milliseconds){
+        this.robot.checkNotBlending("pause()");
+        if (this.runtime != null) {
+            this.runtime.sleep(milliseconds);
+            return;
+        }
+        sleep(milliseconds);
+    }
+
+    /**
+     * This method returns the current time of the opmode, which is simulated when the opmode is
+     * hosted by a runtime on the desktop.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long nanoTime(){
+        if (this.runtime != null) return this.runtime.nanoTime();
+        return System.nanoTime();
+    }
+
+    /**
+     * This method runs one iteration of the loop that waits for the drive motors. It publishes the
+     * telemetry, lets the runtime move time forward and refreshes the hardware snapshot.
+     */
+    void loopUpdate(){
+        updateTelemetry();
+        this.loopStats.endPhase(LoopStats.TELEMETRY);
+        if (this.runtime != null) this.runtime.onLoop();
+        this.loopStats.mark();
+        this.robot.refresh();
+        this.loopStats.endPhase(LoopStats.SENSOR_READ);
+    }
+
+    /**
+     * This method sends the held motor writes and waits until none of the drive motors are busy.
+     */
+    public void waitForDrives(){
+        this.robot.checkNotBlending("waitForDrives()");
+        this.robot.flush();
+        this.robot.refresh();
+        this.loopStats.beginLoop();
+        while (drivesBusy() && this.isActive()){
+            this.loopStats.endPhase(LoopStats.COMPUTE);
+            this.loopUpdate();
+            this.loopStats.beginLoop();
+        }
+        this.loopStats.breakLoop();
+    }
+
+    /**
+     * This method runs commands together until all of them are finished or the opmode stops. The
+     * hardware is read once at the top of each loop and the writes of every command are sent
+     * together at the end of it.
+     *
+     * @param commands The commands to run at the same time.
+     */
+    public void run(Command... commands){
+        this.robot.checkNotBlending("run()");
+        for (Command command : commands) {
+            this.scheduler.schedule(command);
+        }
+        this.robot.refresh();
+        while (!this.scheduler.isIdle() && this.isActive()){
+            this.loopStats.beginLoop();
+            this.robot.holdWrites();
+            this.scheduler.tick(this.nanoTime());
+            this.loopStats.endPhase(LoopStats.COMPUTE);
+            this.robot.flush();
+            this.loopStats.endPhase(LoopStats.ACTUATOR_WRITE);
+            this.loopUpdate();
+        }
+        this.loopStats.breakLoop();
+
+        //Commands are left running if the opmode was stopped
+        this.scheduler.cancelAll();
+        this.robot.flush();
     }
 
     /**
@@ -58,36 +266,37 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
      * This method moves the robot forward until the robot's color sensor is above the tape. It
      * assumes that the robot is already facing the direction of the tape and has no obstacles
      * between it and the tape. If a tolerated color to the right color is not detected, the robot
-     * will not stop moving.
+     * will not stop moving. The robot brakes early enough to stop with the color sensor on the
+     * middle of the tape.
      *
      * @param tapeColor An array of the color of the tape of which the robot is to stop over. Given
      *                  in the format {RED, GREEN, BLUE} as detected by a sensor of the same type as
      *                  the one on the underside of the robot.
      * @param change The tolerance of error of each component of the color that is detected by the
-     *               color sensor.
+     *               color sensor, compared to the brightness of the tape.
      */
     public void stopAtTape(int[] tapeColor, int change){
-        this.robot.lineParkSensor.enableLed(true);
-        this.robot.setPowers(.6);
-        boolean isOnLine = false;
-        while (!isOnLine && this.opModeIsActive()) {
-            int[] r = this.plusOrMinus(this.robot.lineParkSensor.red(), change);
-            int[] g = this.plusOrMinus(this.robot.lineParkSensor.green(), change);
-            int[] b = this.plusOrMinus(this.robot.lineParkSensor.blue(), change);
-
-            //Check if the robot is over the line
-            isOnLine = (((tapeColor[0] > r[0]) && (tapeColor[0] < r[1])) && ((tapeColor[1] > g[0]) && (tapeColor[1] < g[1])) && ((tapeColor[2] > b[0]) && (tapeColor[2] < b[1])));
-        }
-        this.robot.lineParkSensor.enableLed(false);
-        this.robot.stopMoving();
+        this.run(this.stopAtTapeCommand(tapeColor, change));
+    }
+
+    /**
+     * This method creates a command that stops on the tape like stopAtTape() without blocking.
+     *
+     * @param tapeColor An array of the color of the tape in the format {RED, GREEN, BLUE}.
+     * @param change The tolerance of error of each component of the color.
+     * @return The command.
+     */
+    public TapeStopCommand stopAtTapeCommand(int[] tapeColor, int change){
+        double threshold = (double) Math.abs(change) / (tapeColor[0] + tapeColor[1] + tapeColor[2]);
+        return new TapeStopCommand(this, new LineDetector(tapeColor, threshold, FieldModel.tapeWidth * Drivetrain.ticksPerMm), this.tapeSpeed);
     }
 
     /**
      * This method calculates the approximate distance that the robot has traveled with the average
      * encoder value of all of the robot's drive motor's encoders.
      *
-     * @return The approximate distance in centimeters (or millimeters, unsure) that the robot has
-     * traveled since the last time the encoders were reset to the zero position.
+     * @return The approximate distance in the units of drive(), driveUnit millimeters each, that
+     * the robot has traveled since the last time the encoders were reset to the zero position.
      */
     public double calculateDistance(){
       double encoder = this.driveAverage();
@@ -102,27 +311,7 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
      * robot's drive motors.
      */
     public double getAverageEncoder(){
-        int[] encoderPositions = {this.robot.leftFrontDrive.getCurrentPosition(), this.robot.rightFrontDrive.getCurrentPosition(), this.robot.leftBackDrive.getCurrentPosition(), this.robot.rightBackDrive.getCurrentPosition()};
-        int sum = 0;
-        for (int encoderPosition : encoderPositions){
-            sum += Math.abs(encoderPosition);
-        }
-        return sum / encoderPositions.length;
-    }
-
-    /**
-     * This method takes a value and determines the two values equidistant from the given value with
-     * both having a distance of a given value.
-     *
-     * @param value An integer to be used to calculate final points based on change.
-     * @param change An integer which is the absolute distance from the value.
-     * @return An array of integers with two indexes with index zero being the smallest possible
-     * integer from the given value with a given distance and with index one being the largest
-     * possible integer from the given value with a given distance.
-     */
-    private int[] plusOrMinus(int value, int change){
-        change = Math.abs(change);
-        return new int[] {value - change, value + change};
+        return this.robot.snapshot.absoluteDriveAverage();
     }
 
     /**
@@ -134,8 +323,10 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
      *              This value will be assigned as the speed of the motors
      */
     public void turn2 (double angle, double speed) {
+        this.robot.checkNotBlending("turn2()");
         DcMotor.ZeroPowerBehavior previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
         this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        this.robot.holdWrites();
         resetEncoders(DcMotor.RunMode.RUN_TO_POSITION);
         int encoderTarget = (int) (((circleRadius * (Math.toRadians(angle))) * wheelCircumference * 2) / ppr);
         if (angle > 0) {
@@ -151,9 +342,7 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
             this.robot.rightBackDrive.setTargetPosition(encoderTarget);
             this.robot.tank(speed, -speed);
         }
-        while (drivesBusy() && !isStopRequested() && opModeIsActive()){
-            updateTelemetry();
-        }
+        this.waitForDrives();
         this.robot.setDriveZeroPowerBehavior(previousBehavior);
     }
 
@@ -168,30 +357,53 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
      *              This value will be assigned as the speed of the motors
      */
     public void turn (double angle, double speed){
-        DcMotor.ZeroPowerBehavior previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
-        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        this.run(this.turnCommand(angle, speed));
+    }
 
+    /**
+     * This method creates a command that turns the robot like turn() without blocking.
+     *
+     * @param angle A double which is the relative angle (in degrees) to turn.
+     * @param speed A double between -1.0 and 1.0 which is the speed at which the robot is to turn.
+     * @return The command.
+     */
+    public DriveCommand turnCommand(double angle, double speed){
         int encoderTarget = (int) (Math.abs(this.degppr*angle));
         if (angle > 0) {
-            this.robot.leftFrontDrive.setTargetPosition(encoderTarget);
-            this.robot.leftBackDrive.setTargetPosition(encoderTarget);
-            this.robot.rightFrontDrive.setTargetPosition(-encoderTarget);
-            this.robot.rightBackDrive.setTargetPosition(-encoderTarget);
-            resetEncoders(DcMotor.RunMode.RUN_TO_POSITION);
-            this.robot.tank(-speed, speed);
+            return new DriveCommand(this, new int[] {encoderTarget, -encoderTarget, encoderTarget, -encoderTarget}, new double[] {-speed, speed, -speed, speed});
         } else if (angle < 0) {
-            this.robot.leftFrontDrive.setTargetPosition(-encoderTarget);
-            this.robot.leftBackDrive.setTargetPosition(-encoderTarget);
-            this.robot.rightFrontDrive.setTargetPosition(encoderTarget);
-            this.robot.rightBackDrive.setTargetPosition(encoderTarget);
-            resetEncoders(DcMotor.RunMode.RUN_TO_POSITION);
-            this.robot.tank(speed, -speed);
+            return new DriveCommand(this, new int[] {-encoderTarget, encoderTarget, -encoderTarget, encoderTarget}, new double[] {speed, -speed, speed, -speed});
         }
-        while (drivesBusy() && !isStopRequested() && opModeIsActive()){
-            updateTelemetry();
-        }
-        this.robot.setDriveZeroPowerBehavior(previousBehavior);
-        this.robot.setDriveZeroPowerBehavior(previousBehavior);
+        return new DriveCommand(this, new int[4], new double[4]);
+    }
+
+    /**
+     * This method turns the robot by a specified angle (in degrees) with the IMU heading instead
+     * of the encoders. The turn follows a motion profile and ends once the robot is on the angle
+     * and has stopped turning, so it doesn't drift from wheel slip like turn().
+     *
+     * @param angle A double which is the relative angle (in degrees) to turn, counterclockwise.
+     * @param speed A double between 0 and 1.0 which is the fraction of the profile velocity to
+     *              turn at.
+     * @return The command that turned, with the angle achieved and the settle time.
+     */
+    public TurnCommand turnProfiled(double angle, double speed){
+        TurnCommand command = this.turnProfiledCommand(angle, speed);
+        this.run(command);
+        return command;
+    }
+
+    /**
+     * This method creates a command that turns the robot like turnProfiled() without blocking.
+     *
+     * @param angle A double which is the relative angle (in degrees) to turn, counterclockwise.
+     * @param speed A double between 0 and 1.0 which is the fraction of the profile velocity.
+     * @return The command.
+     */
+    public TurnCommand turnProfiledCommand(double angle, double speed){
+        Trajectory profile = this.trajectories.get(Math.toRadians(angle), Math.abs(speed) * this.turnVelocity, this.turnAcceleration, this.turnJerk);
+        this.lastTurn = new TurnCommand(this, Math.toRadians(angle), profile);
+        return this.lastTurn;
     }
 
     /**
@@ -205,33 +417,180 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
      */
 
     public void strafe (Dir direction, double distance, double speed){
-        DcMotor.ZeroPowerBehavior previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
-        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
-        int encoderTarget = (int) ((distance/wheelCircumference)*ppr);
-        this.robot.leftFrontDrive.setTargetPosition((direction == Dir.LEFT) ? encoderTarget : -encoderTarget);
-        this.robot.leftBackDrive.setTargetPosition((direction == Dir.LEFT) ? -encoderTarget: encoderTarget);
-        this.robot.rightFrontDrive.setTargetPosition((direction == Dir.LEFT) ? -encoderTarget: encoderTarget);
-        this.robot.rightBackDrive.setTargetPosition((direction == Dir.LEFT) ? encoderTarget : -encoderTarget);
-        resetEncoders(DcMotor.RunMode.RUN_TO_POSITION);
-        this.robot.strafe(direction, speed);
-        while(drivesBusy() && !isStopRequested() && opModeIsActive()){
-            updateTelemetry();
+        if (this.blend != null) {
+            int[] targets = this.strafeTargets(direction, distance);
+            this.blend.add(targets, this.profileFor(targets, speed));
+            return;
         }
-        this.robot.setDriveZeroPowerBehavior(previousBehavior);
-        return;
+        this.run(this.strafeCommand(direction, distance, speed));
+    }
+
+    /**
+     * This method creates a command that strafes the robot like strafe() without blocking.
+     *
+     * @param direction A Dir enumeration which states which direction the robot will strafe.
+     * @param distance A double which is the distance for the robot to strafe.
+     * @param speed A double between -1.0 and 1.0 which is the speed at which the robot is to strafe.
+     * @return The command.
+     */
+    public DriveCommand strafeCommand(Dir direction, double distance, double speed){
+        double power = (direction == Dir.LEFT) ? speed : -speed;
+        return new DriveCommand(this, this.strafeTargets(direction, distance), new double[] {-power, power, power, -power});
+    }
+
+    /**
+     * This method strafes the robot along a motion profile, so that it can strafe at full speed
+     * and still stop on the target.
+     *
+     * @param direction A Dir enumeration which states which direction the robot will strafe.
+     * @param distance A double which is the distance for the robot to strafe.
+     * @param speed A double between 0 and 1.0 which is the fraction of the profile velocity to
+     *              strafe at.
+     */
+    public void strafeProfiled(Dir direction, double distance, double speed){
+        this.run(this.strafeProfiledCommand(direction, distance, speed));
+    }
+
+    /**
+     * This method creates a command that strafes the robot like strafeProfiled() without blocking.
+     *
+     * @param direction A Dir enumeration which states which direction the robot will strafe.
+     * @param distance A double which is the distance for the robot to strafe.
+     * @param speed A double between 0 and 1.0 which is the fraction of the profile velocity.
+     * @return The command.
+     */
+    public ProfiledDriveCommand strafeProfiledCommand(Dir direction, double distance, double speed){
+        return this.profiledCommand(this.strafeTargets(direction, distance), speed);
     }
+
+    private int[] strafeTargets(Dir direction, double distance){
+        int encoderTarget = (int) ((distance/wheelCircumference)*ppr);
+        int left = (direction == Dir.LEFT) ? encoderTarget : -encoderTarget;
+        return new int[] {left, -left, -left, left};
+    }
+
     public void drive(double distance, double speed){
-        DcMotor.ZeroPowerBehavior previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
-        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        if (this.blend != null) {
+            int[] targets = this.driveTargets(distance);
+            this.blend.add(targets, this.profileFor(targets, speed));
+            return;
+        }
+        this.run(this.driveCommand(distance, speed));
+    }
+
+    /**
+     * This method starts queueing drive() and strafe() calls instead of running them, until
+     * endBlend() runs them as one move. Each segment starts speeding up while the one before it is
+     * slowing down, so the robot doesn't stop between them. Anything else that moves the robot,
+     * waits or runs commands throws an IllegalStateException until endBlend() is called, since it
+     * would happen before the queued segments.
+     */
+    public void beginBlend(){
+        this.robot.checkNotBlending("beginBlend()");
+        this.blend = new BlendedDriveCommand(this);
+        this.robot.blending = true;
+    }
+
+    /**
+     * This method synchronously runs the drive() and strafe() calls queued since beginBlend() as
+     * one blended move.
+     */
+    public void endBlend(){
+        BlendedDriveCommand command = this.blend;
+        this.blend = null;
+        this.robot.blending = false;
+        if (command != null) this.run(command);
+    }
+
+    /**
+     * This method creates a command that drives the robot like drive() without blocking.
+     *
+     * @param distance A double which represents the distance for the robot to travel.
+     * @param speed A double between -1.0 and 1.0 which is the speed at which the robot is to drive.
+     * @return The command.
+     */
+    public DriveCommand driveCommand(double distance, double speed){
+        return new DriveCommand(this, this.driveTargets(distance), new double[] {speed, speed, speed, speed});
+    }
+
+    /**
+     * This method drives the robot along a motion profile, so that it can drive at full speed and
+     * still stop on the target without a slow segment at the end. The robot goes backwards if the
+     * distance is less than zero.
+     *
+     * @param distance A double which represents the distance for the robot to travel.
+     * @param speed A double between 0 and 1.0 which is the fraction of the profile velocity to
+     *              drive at.
+     */
+    public void driveProfiled(double distance, double speed){
+        this.run(this.driveProfiledCommand(distance, speed));
+    }
+
+    /**
+     * This method creates a command that drives the robot like driveProfiled() without blocking.
+     *
+     * @param distance A double which represents the distance for the robot to travel.
+     * @param speed A double between 0 and 1.0 which is the fraction of the profile velocity.
+     * @return The command.
+     */
+    public ProfiledDriveCommand driveProfiledCommand(double distance, double speed){
+        return this.profiledCommand(this.driveTargets(distance), speed);
+    }
+
+    private int[] driveTargets(double distance){
         int encoderTarget = (int) ((distance/wheelCircumference)*ppr);
-        this.robot.setDriveTargetPosition(-encoderTarget);
-        resetEncoders(DcMotor.RunMode.RUN_TO_POSITION);
-        this.robot.setPowers(speed);
-        while(drivesBusy() && !isStopRequested() && opModeIsActive()){
-            updateTelemetry();
+        return new int[] {-encoderTarget, -encoderTarget, -encoderTarget, -encoderTarget};
+    }
+
+    /**
+     * This method creates a command that moves the drive motors to targets along a profile sized
+     * for the largest target.
+     */
+    private ProfiledDriveCommand profiledCommand(int[] targets, double speed){
+        return new ProfiledDriveCommand(this, targets, this.profileFor(targets, speed));
+    }
+
+    /**
+     * This method creates the profile of the largest of the drive motor targets.
+     */
+    private Trajectory profileFor(int[] targets, double speed){
+        int largest = 0;
+        for (int target : targets) {
+            largest = Math.max(largest, Math.abs(target));
         }
-        this.robot.setDriveZeroPowerBehavior(previousBehavior);
-        return;
+        return this.trajectories.get(largest, Math.abs(speed) * this.profileVelocity, this.profileAcceleration, this.profileJerk);
+    }
+
+    /**
+     * This method drives the robot through the waypoints of a path without stopping until the last
+     * one, turning on the way. The waypoints are in millimeters from where the robot started.
+     *
+     * @param path The path to follow.
+     */
+    public void followPath(Path path){
+        this.run(this.followPathCommand(path));
+    }
+
+    /**
+     * This method compiles a TOKEN from the path generator, so that it can be followed with
+     * followPath(). This should be called before waitForStart() so that no time is spent decoding
+     * after the start.
+     *
+     * @param token The TOKEN of the route.
+     * @return The compiled route.
+     */
+    public RoutePlan compileRoute(String token){
+        return RoutePlan.compile(token, this.routeMmPerUnit);
+    }
+
+    /**
+     * This method creates a command that follows a path like followPath() without blocking.
+     *
+     * @param path The path to follow.
+     * @return The command.
+     */
+    public PurePursuitFollower followPathCommand(Path path){
+        return new PurePursuitFollower(this, path);
     }
 
     /**
@@ -239,10 +598,11 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
      * encoder position to the total encoder positions.
      */
     public void resetEncoders(DcMotor.RunMode runMode){
-        this.leftFrontEncoder += this.robot.leftFrontDrive.getCurrentPosition();
-        this.rightFrontEncoder += this.robot.rightFrontDrive.getCurrentPosition();
-        this.leftBackEncoder += this.robot.leftBackDrive.getCurrentPosition();
-        this.rightBackEncoder += this.robot.rightBackDrive.getCurrentPosition();
+        this.robot.refresh();
+        this.leftFrontEncoder += this.robot.snapshot.getPosition(HardwareSnapshot.LEFT_FRONT);
+        this.rightFrontEncoder += this.robot.snapshot.getPosition(HardwareSnapshot.RIGHT_FRONT);
+        this.leftBackEncoder += this.robot.snapshot.getPosition(HardwareSnapshot.LEFT_BACK);
+        this.rightBackEncoder += this.robot.snapshot.getPosition(HardwareSnapshot.RIGHT_BACK);
 
         this.robot.setDriveMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
         this.robot.setDriveMode(runMode);
@@ -255,48 +615,90 @@ public abstract class SPQRLinearOpMode extends LinearOpMode {
      * @return A double which represents the average encoder values of all of the robot's drive motors.
      */
     public double driveAverage(){
-      int[] encoderPositions = {this.robot.leftFrontDrive.getCurrentPosition(), this.robot.rightFrontDrive.getCurrentPosition(), this.robot.leftBackDrive.getCurrentPosition(), this.robot.rightBackDrive.getCurrentPosition()};
-      int sum = 0;
-      for (int encoderPosition : encoderPositions){
-        sum += encoderPosition;
-      }
-      return sum / encoderPositions.length;
+      return this.robot.snapshot.driveAverage();
     }
 
     /**
-     * This method updates the telemetry data on both the driver station and the robot controller
-     * with common debugging information.
+     * This method creates the telemetry slots and starts sending them on a background thread.
      */
-    public void updateTelemetry(){
-        telemetry.addData("Distance", calculateDistance());
+    public void startTelemetry(){
+        this.addTelemetrySlots(new TelemetryPublisher(telemetry));
 
-        telemetry.addData("Left Front Velocity", ((DcMotorEx) this.robot.leftFrontDrive).getVelocity());
-        telemetry.addData("Right Front Velocity", ((DcMotorEx) this.robot.rightFrontDrive).getVelocity());
-        telemetry.addData("Left Back Velocity", ((DcMotorEx) this.robot.leftBackDrive).getVelocity());
-        telemetry.addData("Right Back Velocity", ((DcMotorEx) this.robot.leftFrontDrive).getVelocity());
+        //The publisher stops once the opmode thread ends, which is when the opmode has stopped
+        this.publisher.setOnStop(new Runnable() {
+            @Override
+            public void run() {
+                loopStats.log();
 
-        telemetry.addData("Left Front Target", this.robot.leftFrontDrive.getTargetPosition());
-        telemetry.addData("Right Front Target", this.robot.rightFrontDrive.getTargetPosition());
-        telemetry.addData("Left Back Target", this.robot.leftBackDrive.getTargetPosition());
-        telemetry.addData("Right Back Target", this.robot.rightBackDrive.getTargetPosition());
+                //Keep the moves computed during this run for the next one
+                if (trajectories.isChanged()) trajectories.save(trajectoryFile());
+            }
+        });
+        this.publisher.start(this.telemetryRate);
+    }
 
-        telemetry.addData("left Front TempEncoder", this.robot.leftFrontDrive.getCurrentPosition());
-        telemetry.addData("right Front TempEncoder", this.robot.rightFrontDrive.getCurrentPosition());
-        telemetry.addData("left Back TempEncoder", this.robot.leftBackDrive.getCurrentPosition());
-        telemetry.addData("right Back TempEncoder", this.robot.rightBackDrive.getCurrentPosition());
-        telemetry.addData("left Front Encoder", this.leftFrontEncoder);
-        telemetry.addData("right Front Encoder", this.rightFrontEncoder);
-        telemetry.addData("left Back Encoder", this.leftBackEncoder);
-        telemetry.addData("right Back Encoder", this.rightBackEncoder);
-        telemetry.update();
+    /**
+     * This method creates the telemetry slots on a publisher without starting it, so that the
+     * loops can write into them when nothing is sent, such as in ControlLoopBenchmark.
+     *
+     * @param publisher The publisher that updateTelemetry() writes into.
+     */
+    void addTelemetrySlots(TelemetryPublisher publisher){
+        String four = "%.0f, %.0f, %.0f, %.0f";
+        this.publisher = publisher;
+        this.distanceSlot = this.publisher.addSlot("Distance");
+        this.velocitySlot = this.publisher.addSlot("Velocity {LF, RF, LB, RB}", four, 4);
+        this.targetSlot = this.publisher.addSlot("Target {LF, RF, LB, RB}", four, 4);
+        this.tempEncoderSlot = this.publisher.addSlot("TempEncoder {LF, RF, LB, RB}", four, 4);
+        this.encoderSlot = this.publisher.addSlot("Encoder {LF, RF, LB, RB}", four, 4);
+        this.snapshotSlot = this.publisher.addSlot("Snapshot {Refreshes, Reads}", "%.0f, %.0f", 2);
+        this.poseSlot = this.publisher.addSlot("Pose {X, Y, Heading}", "%.0f, %.0f, %.1f", 3);
+        this.headingSlot = this.publisher.addSlot("IMU {Heading, Healthy}", "%.1f, %.0f", 2);
+        this.turnSlot = this.publisher.addSlot("Turn {Target, Achieved, Settle ms}", "%.1f, %.1f, %.0f", 3);
+    }
+
+    /**
+     * This method updates the telemetry data on both the driver station and the robot controller
+     * with common debugging information. All values are taken from the hardware snapshot, so
+     * refresh() should be called before this method in each loop. This only writes the values into
+     * the telemetry slots, they are sent by the publisher at the telemetry rate.
+     */
+    public void updateTelemetry(){
+        if (this.publisher == null) return;
+        HardwareSnapshot snapshot = this.robot.snapshot;
+        this.publisher.set(this.distanceSlot, calculateDistance());
+        for (int i = 0; i < 4; i++) {
+            this.publisher.set(this.velocitySlot, i, snapshot.getVelocity(i));
+            this.publisher.set(this.targetSlot, i, snapshot.getTarget(i));
+            this.publisher.set(this.tempEncoderSlot, i, snapshot.getPosition(i));
+        }
+        this.publisher.set(this.encoderSlot, HardwareSnapshot.LEFT_FRONT, this.leftFrontEncoder);
+        this.publisher.set(this.encoderSlot, HardwareSnapshot.RIGHT_FRONT, this.rightFrontEncoder);
+        this.publisher.set(this.encoderSlot, HardwareSnapshot.LEFT_BACK, this.leftBackEncoder);
+        this.publisher.set(this.encoderSlot, HardwareSnapshot.RIGHT_BACK, this.rightBackEncoder);
+        this.publisher.set(this.snapshotSlot, 0, snapshot.getRefreshes());
+        this.publisher.set(this.snapshotSlot, 1, snapshot.getStaleReads());
+        Pose pose = this.robot.odometry.getPose();
+        this.publisher.set(this.poseSlot, 0, pose.x);
+        this.publisher.set(this.poseSlot, 1, pose.y);
+        this.publisher.set(this.poseSlot, 2, Math.toDegrees(pose.heading));
+        if (this.robot.headingService != null) {
+            this.publisher.set(this.headingSlot, 0, Math.toDegrees(this.robot.headingService.getHeading()));
+            this.publisher.set(this.headingSlot, 1, this.robot.headingService.getHealthySensors());
+        }
+        if (this.lastTurn != null) {
+            this.publisher.set(this.turnSlot, 0, Math.toDegrees(this.lastTurn.getAngle()));
+            this.publisher.set(this.turnSlot, 1, Math.toDegrees(this.lastTurn.getAchievedAngle()));
+            this.publisher.set(this.turnSlot, 2, this.lastTurn.getSettleTime() / 1e6);
+        }
     }
 
     /**
      *  This method is an abstraction that returns true if at least one motor is running, false if
-     *  no motors are running.
+     *  no motors are running. The value is taken from the last hardware snapshot.
      * @return returns the boolean true if 1 or more drives are running, false otherwise.
      */
     boolean drivesBusy() {
-        return (this.robot.leftFrontDrive.isBusy() || this.robot.rightFrontDrive.isBusy() || this.robot.leftBackDrive.isBusy() || this.robot.rightBackDrive.isBusy());
+        return this.robot.snapshot.drivesBusy();
     }
 }
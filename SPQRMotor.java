@@ -0,0 +1,45 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This interface is every motor function the robot uses. It is implemented by the motors on the
+ * robot (FtcDevices) and by the simulated motors (SimMotor) so that the same code can run on both.
+ *
+ * @author Arkin Solomon
+ */
+public interface SPQRMotor {
+
+    void setPower(double power);
+
+    double getPower();
+
+    void setMode(DcMotor.RunMode mode);
+
+    DcMotor.RunMode getMode();
+
+    void setTargetPosition(int target);
+
+    int getTargetPosition();
+
+    int getCurrentPosition();
+
+    /**
+     * @return The velocity of the motor in encoder units per second.
+     */
+    double getVelocity();
+
+    boolean isBusy();
+
+    void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior);
+
+    DcMotor.ZeroPowerBehavior getZeroPowerBehavior();
+
+    void setDirection(DcMotor.Direction direction);
+
+    /**
+     * @param tolerance The distance from the target, in encoder units, at which a motor running to
+     *                  a position is no longer busy.
+     */
+    void setTargetPositionTolerance(int tolerance);
+}
@@ -0,0 +1,14 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This interface is every servo function the robot uses. It is implemented by the servos on the
+ * robot (FtcDevices) and by the simulated servos (SimServo).
+ *
+ * @author Arkin Solomon
+ */
+public interface SPQRServo {
+
+    void setPosition(double position);
+
+    double getPosition();
+}
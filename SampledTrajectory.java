@@ -0,0 +1,104 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a trajectory stored as samples taken at a fixed period, so that following it is
+ * only index arithmetic and an interpolation between two samples. Samples are kept in float arrays,
+ * which are precise to well under an encoder unit for any move on the field.
+ *
+ * @author Arkin Solomon
+ */
+public class SampledTrajectory implements Trajectory {
+
+    final float period;
+    final float duration;
+    final float accelerationTime;
+    final float distance;
+    final float[] positions;
+    final float[] velocities;
+    final float[] accelerations;
+
+    /**
+     * @param period           The time between samples in seconds.
+     * @param duration         The time the move takes in seconds.
+     * @param accelerationTime The time spent speeding up in seconds.
+     * @param distance         The length of the move.
+     * @param positions        The position at each sample.
+     * @param velocities       The velocity at each sample.
+     * @param accelerations    The acceleration at each sample.
+     */
+    SampledTrajectory(float period, float duration, float accelerationTime, float distance, float[] positions, float[] velocities, float[] accelerations) {
+        this.period = period;
+        this.duration = duration;
+        this.accelerationTime = accelerationTime;
+        this.distance = distance;
+        this.positions = positions;
+        this.velocities = velocities;
+        this.accelerations = accelerations;
+    }
+
+    /**
+     * This method samples another trajectory from its start until it ends.
+     *
+     * @param trajectory The trajectory to sample.
+     * @param period     The time between samples in seconds.
+     * @return The samples.
+     */
+    public static SampledTrajectory sample(Trajectory trajectory, double period) {
+        double duration = trajectory.getDuration();
+        int count = (int) Math.ceil(duration / period) + 1;
+        float[] positions = new float[count];
+        float[] velocities = new float[count];
+        float[] accelerations = new float[count];
+        for (int i = 0; i < count; i++) {
+            double t = Math.min(i * period, duration);
+            positions[i] = (float) trajectory.getPosition(t);
+            velocities[i] = (float) trajectory.getVelocity(t);
+            accelerations[i] = (float) trajectory.getAcceleration(t);
+        }
+        return new SampledTrajectory((float) period, (float) duration, (float) trajectory.getAccelerationTime(), (float) trajectory.getDistance(), positions, velocities, accelerations);
+    }
+
+    /**
+     * This method interpolates between the two samples around a time.
+     */
+    private double interpolate(float[] samples, double t) {
+        double index = Math.max(0, t) / this.period;
+        int before = Math.min((int) index, samples.length - 1);
+        int after = Math.min(before + 1, samples.length - 1);
+        double fraction = index - before;
+        return samples[before] + (samples[after] - samples[before]) * Math.min(1, fraction);
+    }
+
+    @Override
+    public double getPosition(double t) {
+        if (t >= this.duration) return this.distance;
+        return this.interpolate(this.positions, t);
+    }
+
+    @Override
+    public double getVelocity(double t) {
+        if (t >= this.duration) return 0;
+        return this.interpolate(this.velocities, t);
+    }
+
+    @Override
+    public double getAcceleration(double t) {
+        if (t >= this.duration) return 0;
+        return this.interpolate(this.accelerations, t);
+    }
+
+    @Override
+    public double getDuration() {
+        return this.duration;
+    }
+
+    @Override
+    public double getAccelerationTime() {
+        return this.accelerationTime;
+    }
+
+    @Override
+    public double getDistance() {
+        return this.distance;
+    }
+}
@@ -0,0 +1,49 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class runs commands one after another. Each command starts on the same tick that the one
+ * before it finishes.
+ *
+ * @author Arkin Solomon
+ */
+public class SequentialCommand implements Command {
+
+    private final Command[] commands;
+    private int current = 0;
+
+    /**
+     * @param commands The commands to run in order.
+     */
+    public SequentialCommand(Command... commands) {
+        this.commands = commands;
+    }
+
+    @Override
+    public void start(long now) {
+        this.current = 0;
+        if (this.commands.length > 0) this.commands[0].start(now);
+    }
+
+    @Override
+    public void update(long now) {
+        if (this.isFinished()) return;
+        Command command = this.commands[this.current];
+        command.update(now);
+        if (!command.isFinished()) return;
+        command.end();
+        this.current++;
+        if (this.current < this.commands.length) this.commands[this.current].start(now);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.current >= this.commands.length;
+    }
+
+    @Override
+    public void end() {
+
+        //Only the current command is running if this was cancelled
+        if (!this.isFinished()) this.commands[this.current].end();
+    }
+}
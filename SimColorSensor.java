@@ -0,0 +1,87 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a simulated color sensor on the underside of the robot. It reads the color of the
+ * field model under the sensor whenever the simulator moves forward in time.
+ *
+ * @author Arkin Solomon
+ */
+public class SimColorSensor implements SPQRColorSensor {
+
+    //Position of the sensor on the robot in millimeters, forward and left of the center
+    private final double forwardOffset;
+    private final double leftOffset;
+
+    private final int[] color = new int[3];
+    private boolean ledEnabled = false;
+
+    //Proximity reading of the floor under the robot
+    public int floorProximity = 150;
+
+    /**
+     * @param forwardOffset The distance in millimeters the sensor is in front of the robot center.
+     * @param leftOffset    The distance in millimeters the sensor is left of the robot center.
+     */
+    public SimColorSensor(double forwardOffset, double leftOffset) {
+        this.forwardOffset = forwardOffset;
+        this.leftOffset = leftOffset;
+    }
+
+    /**
+     * This method reads the field under the sensor.
+     *
+     * @param field   The field the robot is on.
+     * @param x       The x position of the robot in millimeters.
+     * @param y       The y position of the robot in millimeters.
+     * @param heading The heading of the robot in radians.
+     */
+    public synchronized void sample(FieldModel field, double x, double y, double heading) {
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double sensorX = x + this.forwardOffset * cos - this.leftOffset * sin;
+        double sensorY = y + this.forwardOffset * sin + this.leftOffset * cos;
+        field.colorAt(sensorX, sensorY, this.color);
+
+        //Without the LED very little light reaches the sensor
+        if (!this.ledEnabled) {
+            this.color[0] /= 8;
+            this.color[1] /= 8;
+            this.color[2] /= 8;
+        }
+    }
+
+    @Override
+    public synchronized int red() {
+        return this.color[0];
+    }
+
+    @Override
+    public synchronized int green() {
+        return this.color[1];
+    }
+
+    @Override
+    public synchronized int blue() {
+        return this.color[2];
+    }
+
+    @Override
+    public synchronized void enableLed(boolean enable) {
+        this.ledEnabled = enable;
+    }
+
+    @Override
+    public synchronized void read(int[] values) {
+        values[0] = this.color[0];
+        values[1] = this.color[1];
+        values[2] = this.color[2];
+        values[3] = this.floorProximity;
+    }
+
+    @Override
+    public long configure(int gain, int integrationMillis) {
+
+        //The field is sampled every step, so readings are never old
+        return 0;
+    }
+}
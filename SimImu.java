@@ -0,0 +1,61 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a simulated IMU. It reads the heading of the robot whenever the simulator moves
+ * forward in time and can drift or fail, so that code reading the IMUs can be tested against a bad
+ * sensor.
+ *
+ * @author Arkin Solomon
+ */
+public class SimImu implements SPQRImu {
+
+    //Heading of the robot and the error added to it, in radians
+    private double heading = 0;
+    private double drift = 0;
+    private double zero = 0;
+
+    //Rate that the error grows in radians per second
+    private double driftRate = 0;
+
+    //True if reads should fail like a disconnected sensor
+    private boolean failed = false;
+
+    /**
+     * This method reads the heading of the robot.
+     *
+     * @param heading The heading of the robot in radians.
+     * @param dt      The amount of time since the last sample in seconds.
+     */
+    public synchronized void sample(double heading, double dt) {
+        this.heading = heading;
+        this.drift += this.driftRate * dt;
+    }
+
+    @Override
+    public synchronized boolean initialize() {
+
+        //The IMU measures the heading from where it is when started
+        this.zero = this.heading + this.drift;
+        return !this.failed;
+    }
+
+    @Override
+    public synchronized double getHeading() {
+        if (this.failed) throw new IllegalStateException("Simulated IMU failure");
+        return Pose.normalize(this.heading + this.drift - this.zero);
+    }
+
+    /**
+     * @param driftRate The rate that the heading drifts in radians per second.
+     */
+    public synchronized void setDriftRate(double driftRate) {
+        this.driftRate = driftRate;
+    }
+
+    /**
+     * @param failed True to make every read fail.
+     */
+    public synchronized void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+}
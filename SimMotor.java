@@ -0,0 +1,192 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This class is a simulated motor with an encoder. It follows the run modes of the motors on the
+ * robot, including RUN_TO_POSITION with a target position tolerance, and responds to power with a
+ * first order lag instead of instantly. The simulator moves it forward in time with step().
+ *
+ * @author Arkin Solomon
+ */
+public class SimMotor implements SPQRMotor {
+
+    //Encoder units per second at full power
+    private final double maxVelocity;
+
+    //Time constants of the response to power and of coasting, in seconds
+    private final double responseTime;
+    private final double coastTime;
+
+    //Fraction of full power per encoder unit of error when running to a position
+    private final double positionGain;
+
+    //State in the direction that the motor reports
+    private double position = 0;
+    private double velocity = 0;
+    private double power = 0;
+    private int target = 0;
+    private int tolerance = 10;
+    private DcMotor.RunMode mode = DcMotor.RunMode.RUN_WITHOUT_ENCODER;
+    private DcMotor.ZeroPowerBehavior behavior = DcMotor.ZeroPowerBehavior.FLOAT;
+    private DcMotor.Direction direction = DcMotor.Direction.FORWARD;
+
+    //Simulated time that each read or write to the motor takes, in nanoseconds
+    private long latency = 0;
+
+    /**
+     * @param maxVelocity  The velocity in encoder units per second at full power.
+     * @param responseTime The time constant of the motor when power is applied, in seconds.
+     * @param coastTime    The time constant of the motor when floating at zero power, in seconds.
+     * @param positionGain The fraction of full power per encoder unit of error used when running to
+     *                     a position.
+     */
+    public SimMotor(double maxVelocity, double responseTime, double coastTime, double positionGain) {
+        this.maxVelocity = maxVelocity;
+        this.responseTime = responseTime;
+        this.coastTime = coastTime;
+        this.positionGain = positionGain;
+    }
+
+    /**
+     * This method moves the motor forward in time.
+     *
+     * @param dt The amount of time to move forward in seconds.
+     */
+    public synchronized void step(double dt) {
+        if (this.mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            this.position = 0;
+            this.velocity = 0;
+            return;
+        }
+
+        //Velocity that the motor controller is asking for
+        double command = this.power;
+        if (this.mode == DcMotor.RunMode.RUN_TO_POSITION) {
+            double error = this.target - this.position;
+            if (Math.abs(error) <= this.tolerance) {
+                command = 0;
+            } else {
+                command = Math.max(-1, Math.min(1, this.positionGain * error)) * Math.abs(this.power);
+            }
+        }
+        double desired = command * this.maxVelocity;
+
+        //A floating motor coasts down slower than a braking one
+        double timeConstant = this.responseTime;
+        if (command == 0 && this.behavior == DcMotor.ZeroPowerBehavior.FLOAT) {
+            timeConstant = this.coastTime;
+        }
+        this.velocity += (desired - this.velocity) * (1 - Math.exp(-dt / timeConstant));
+        this.position += this.velocity * dt;
+    }
+
+    /**
+     * @return The velocity of the output shaft in the physical direction of the motor, independent
+     * of the direction set on the motor, in encoder units per second.
+     */
+    public synchronized double getShaftVelocity() {
+        return this.direction == DcMotor.Direction.REVERSE ? -this.velocity : this.velocity;
+    }
+
+    /**
+     * @param latency The simulated time in nanoseconds that every call to the motor takes.
+     */
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * This method busy waits for the simulated latency of a hub call.
+     */
+    private void waitForHub() {
+        if (this.latency <= 0) return;
+        long end = System.nanoTime() + this.latency;
+        while (System.nanoTime() < end) {
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public synchronized void setPower(double power) {
+        this.waitForHub();
+        this.power = Math.max(-1, Math.min(1, power));
+    }
+
+    @Override
+    public synchronized double getPower() {
+        this.waitForHub();
+        return this.power;
+    }
+
+    @Override
+    public synchronized void setMode(DcMotor.RunMode mode) {
+        this.waitForHub();
+        this.mode = mode;
+        if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            this.position = 0;
+            this.velocity = 0;
+            this.power = 0;
+        }
+    }
+
+    @Override
+    public synchronized DcMotor.RunMode getMode() {
+        return this.mode;
+    }
+
+    @Override
+    public synchronized void setTargetPosition(int target) {
+        this.waitForHub();
+        this.target = target;
+    }
+
+    @Override
+    public synchronized int getTargetPosition() {
+        return this.target;
+    }
+
+    @Override
+    public synchronized int getCurrentPosition() {
+        this.waitForHub();
+        return (int) Math.round(this.position);
+    }
+
+    @Override
+    public synchronized double getVelocity() {
+        this.waitForHub();
+        return this.velocity;
+    }
+
+    @Override
+    public synchronized boolean isBusy() {
+        this.waitForHub();
+        return this.mode == DcMotor.RunMode.RUN_TO_POSITION && this.power != 0 && Math.abs(this.target - this.position) > this.tolerance;
+    }
+
+    @Override
+    public synchronized void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior) {
+        this.behavior = behavior;
+    }
+
+    @Override
+    public synchronized DcMotor.ZeroPowerBehavior getZeroPowerBehavior() {
+        return this.behavior;
+    }
+
+    @Override
+    public synchronized void setDirection(DcMotor.Direction direction) {
+
+        //Changing direction flips what the encoder reports but not where the shaft is
+        if (direction != this.direction) {
+            this.position = -this.position;
+            this.velocity = -this.velocity;
+        }
+        this.direction = direction;
+    }
+
+    @Override
+    public synchronized void setTargetPositionTolerance(int tolerance) {
+        this.tolerance = tolerance;
+    }
+}
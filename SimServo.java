@@ -0,0 +1,51 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a simulated servo. It moves towards its position at a fixed speed so that waiting
+ * on a servo in a routine takes time like it would on the robot.
+ *
+ * @author Arkin Solomon
+ */
+public class SimServo implements SPQRServo {
+
+    //Fraction of the full range that the servo moves per second
+    private final double speed;
+
+    private double position = 0;
+    private double actualPosition = 0;
+
+    /**
+     * @param speed The fraction of the full range that the servo moves per second.
+     */
+    public SimServo(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * This method moves the servo forward in time.
+     *
+     * @param dt The amount of time to move forward in seconds.
+     */
+    public synchronized void step(double dt) {
+        double change = this.position - this.actualPosition;
+        double maxChange = this.speed * dt;
+        this.actualPosition += Math.max(-maxChange, Math.min(maxChange, change));
+    }
+
+    /**
+     * @return Where the servo actually is, which lags behind the position it was given.
+     */
+    public synchronized double getActualPosition() {
+        return this.actualPosition;
+    }
+
+    @Override
+    public synchronized void setPosition(double position) {
+        this.position = Math.max(-1, Math.min(1, position));
+    }
+
+    @Override
+    public synchronized double getPosition() {
+        return this.position;
+    }
+}
@@ -0,0 +1,380 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.vuforia.Image;
+import com.vuforia.PIXEL_FORMAT;
+import com.vuforia.Vuforia;
+
+import org.firstinspires.ftc.robotcore.external.navigation.VuforiaLocalizer;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class finds which of the three stones in front of the robot is the skystone from the camera
+ * frames of Vuforia. A region of each frame that covers the three stones is down-sampled into a
+ * small grid of luminance, and the third of the region that is darkest compared to the other two is
+ * the skystone, because of the black label on its side. The result of the last few frames is voted
+ * on so one bad frame doesn't change it.
+ *
+ * The detector runs on its own thread during init, so the position is known when the opmode
+ * starts. Nothing is allocated for each frame. Frames can be recorded to files, which are written on
+ * another thread from one reused copy of the frame. test/SkystoneDetectorCheck checks the detector
+ * on frames made in code, and on recorded frames when given the folder they are in.
+ *
+ * @author Arkin Solomon
+ */
+public class SkystoneDetector {
+
+    //Positions of the skystone, from the left of the camera image
+    public static final int UNKNOWN = -1;
+    public static final int LEFT = 0;
+    public static final int CENTER = 1;
+    public static final int RIGHT = 2;
+
+    //Region of the frame that covers the three stones, as fractions of the width and height
+    public double regionLeft = 0.1;
+    public double regionTop = 0.45;
+    public double regionWidth = 0.8;
+    public double regionHeight = 0.25;
+
+    //Size of the down-sampled grid of the region, the width is split into thirds
+    public static final int gridColumns = 24;
+    public static final int gridRows = 6;
+
+    //Smallest difference in luminance between the darkest third and the others, as a fraction of
+    //the others, that counts as a skystone
+    public double contrast = 0.25;
+
+    //Amount of frames that are voted on
+    private static final int votes = 8;
+
+    //Longest time to wait for a frame before checking if the detector should stop, in milliseconds
+    private static final long frameTimeout = 100;
+
+    //Down-sampled region, in luminance from 0 to 255, and the amount of pixels in each cell
+    private final int[] grid = new int[gridColumns * gridRows];
+    private final int[] counts = new int[gridColumns * gridRows];
+    private final double[] thirds = new double[3];
+    private final int[] thirdCells = new int[3];
+
+    //Result of each of the last frames, in a ring buffer
+    private final int[] results = new int[votes];
+    private int newest = 0;
+
+    //Published values, read by any thread
+    private volatile int position = UNKNOWN;
+    private volatile double lastContrast = 0;
+    private volatile long processNanos = 0;
+    private volatile long frames = 0;
+
+    //Folder that frames are recorded into once a second, or null
+    public File recordFolder = null;
+    private long lastRecord = 0;
+
+    //Copy of the frame that is being recorded, written on the recording thread while writing is true
+    private byte[] recording = null;
+    private int recordWidth, recordHeight, recordStride, recordFormat;
+    private long recordNumber = 0;
+    private volatile boolean writing = false;
+    private ExecutorService recorder = null;
+    private final Runnable writeRecording = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                File folder = recordFolder;
+                if (folder != null) record(new File(folder, "frame" + recordNumber + ".bin"), recording, recordWidth, recordHeight, recordStride, recordFormat);
+            } finally {
+                writing = false;
+            }
+        }
+    };
+
+    //Monitor that the CPU time of each frame is given to, or null
+    private volatile VisionMonitor monitor = null;
+
+    private Thread thread = null;
+    private volatile boolean running = false;
+
+    public SkystoneDetector() {
+        Arrays.fill(this.results, UNKNOWN);
+    }
+
+    /**
+     * This method starts finding the skystone on a background thread from the frame queue of
+     * Vuforia. Frames are taken in RGB565. Nothing else should take frames from the queue until the
+     * detector is stopped. It stops by itself once the thread that called this method ends.
+     *
+     * @param vuforia The Vuforia engine to get the frames from.
+     */
+    public synchronized void start(final VuforiaLocalizer vuforia) {
+        if (this.thread != null) return;
+        final Thread owner = Thread.currentThread();
+        Vuforia.setFrameFormat(PIXEL_FORMAT.RGB565, true);
+        vuforia.setFrameQueueCapacity(1);
+        this.running = true;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                BlockingQueue<VuforiaLocalizer.CloseableFrame> frames = vuforia.getFrameQueue();
+                while (running && owner.isAlive()) {
+                    VuforiaLocalizer.CloseableFrame frame;
+                    try {
+                        frame = frames.poll(frameTimeout, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (frame == null) continue;
+                    VisionMonitor monitor = SkystoneDetector.this.monitor;
+                    long cpu = monitor == null ? -1 : VisionMonitor.threadCpuTime();
+                    try {
+                        for (int i = 0; i < frame.getNumImages(); i++) {
+                            Image image = frame.getImage(i);
+                            if (image.getFormat() == PIXEL_FORMAT.RGB565 || image.getFormat() == PIXEL_FORMAT.GRAYSCALE) {
+                                process(image.getPixels(), image.getWidth(), image.getHeight(), image.getStride(), image.getFormat());
+                                break;
+                            }
+                        }
+                    } finally {
+                        frame.close();
+                    }
+                    if (monitor != null) monitor.recordFrame(cpu < 0 ? -1 : VisionMonitor.threadCpuTime() - cpu, System.nanoTime());
+                }
+            }
+        }, "SkystoneDetector");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * This method sets the monitor that records how long the frames take. It can be changed while
+     * the detector is running.
+     *
+     * @param monitor The monitor, or null to not measure the frames.
+     */
+    public void setMonitor(VisionMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * This method stops finding the skystone, and the frame queue can be used by something else.
+     * The last position is kept.
+     */
+    public synchronized void stop() {
+        if (this.recorder != null) {
+            this.recorder.shutdown();
+            this.recorder = null;
+        }
+        if (this.thread == null) return;
+        this.running = false;
+        this.thread.interrupt();
+        this.thread = null;
+    }
+
+    /**
+     * This method finds the skystone in one frame and adds it to the vote.
+     *
+     * @param pixels The pixels of the frame, which aren't changed.
+     * @param width  The width of the frame in pixels.
+     * @param height The height of the frame in pixels.
+     * @param stride The length of a row in bytes.
+     * @param format PIXEL_FORMAT.RGB565 or PIXEL_FORMAT.GRAYSCALE.
+     * @return The position of the skystone in the frame, or UNKNOWN.
+     */
+    public int process(ByteBuffer pixels, int width, int height, int stride, int format) {
+        long start = System.nanoTime();
+        int bytesPerPixel = format == PIXEL_FORMAT.RGB565 ? 2 : 1;
+        int left = (int) (this.regionLeft * width);
+        int top = (int) (this.regionTop * height);
+        int right = Math.min(width, left + (int) (this.regionWidth * width));
+        int bottom = Math.min(height, top + (int) (this.regionHeight * height));
+        Arrays.fill(this.grid, 0);
+        Arrays.fill(this.counts, 0);
+
+        //Only every few pixels are read, about two for each cell in each direction
+        int stepX = Math.max(1, (right - left) / (gridColumns * 2));
+        int stepY = Math.max(1, (bottom - top) / (gridRows * 2));
+        for (int y = top; y < bottom; y += stepY) {
+            int row = (y - top) * gridRows / (bottom - top);
+            int rowStart = y * stride;
+            for (int x = left; x < right; x += stepX) {
+                int index = rowStart + x * bytesPerPixel;
+                int luminance;
+                if (bytesPerPixel == 2) {
+                    int pixel = (pixels.get(index) & 0xFF) | (pixels.get(index + 1) & 0xFF) << 8;
+                    int red = (pixel >> 11 & 0x1F) << 3;
+                    int green = (pixel >> 5 & 0x3F) << 2;
+                    int blue = (pixel & 0x1F) << 3;
+                    luminance = (77 * red + 150 * green + 29 * blue) >> 8;
+                } else {
+                    luminance = pixels.get(index) & 0xFF;
+                }
+                int cell = row * gridColumns + (x - left) * gridColumns / (right - left);
+                this.grid[cell] += luminance;
+                this.counts[cell]++;
+            }
+        }
+
+        //Average each cell and then each third, leaving out cells that no pixel landed in
+        Arrays.fill(this.thirds, 0);
+        Arrays.fill(this.thirdCells, 0);
+        for (int i = 0; i < this.grid.length; i++) {
+            if (this.counts[i] == 0) continue;
+            this.grid[i] /= this.counts[i];
+            int third = (i % gridColumns) * 3 / gridColumns;
+            this.thirds[third] += this.grid[i];
+            this.thirdCells[third]++;
+        }
+        for (int i = 0; i < 3; i++) {
+            if (this.thirdCells[i] > 0) this.thirds[i] /= this.thirdCells[i];
+        }
+        int result = this.classify();
+
+        this.newest = (this.newest + 1) % votes;
+        this.results[this.newest] = result;
+        this.position = this.vote();
+        this.frames++;
+        this.processNanos = System.nanoTime() - start;
+        if (this.recordFolder != null && start - this.lastRecord > 1000000000L && !this.writing) {
+            this.lastRecord = start;
+            this.startRecording(pixels, width, height, stride, format);
+        }
+        return result;
+    }
+
+    /**
+     * This method copies a frame into the recording buffer and writes it on the recording thread, so
+     * the detector doesn't wait on storage. The buffer is only made again if the frame size changes.
+     */
+    private synchronized void startRecording(ByteBuffer pixels, int width, int height, int stride, int format) {
+        int length = stride * height;
+        if (this.recording == null || this.recording.length != length) this.recording = new byte[length];
+        for (int i = 0; i < length; i++) {
+            this.recording[i] = pixels.get(i);
+        }
+        this.recordWidth = width;
+        this.recordHeight = height;
+        this.recordStride = stride;
+        this.recordFormat = format;
+        this.recordNumber = this.frames;
+        if (this.recorder == null) {
+            this.recorder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SkystoneRecorder");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        this.writing = true;
+        this.recorder.execute(this.writeRecording);
+    }
+
+    /**
+     * This method finds the third that is darkest compared to the other two.
+     */
+    private int classify() {
+        int darkest = 0;
+        for (int i = 1; i < 3; i++) {
+            if (this.thirds[i] < this.thirds[darkest]) darkest = i;
+        }
+        double others = (this.thirds[0] + this.thirds[1] + this.thirds[2] - this.thirds[darkest]) / 2.0;
+        double difference = others == 0 ? 0 : (others - this.thirds[darkest]) / others;
+        this.lastContrast = difference;
+        return difference >= this.contrast ? darkest : UNKNOWN;
+    }
+
+    /**
+     * This method finds the position seen in the most of the last frames.
+     */
+    private int vote() {
+        int best = UNKNOWN;
+        int bestCount = 0;
+        for (int candidate = LEFT; candidate <= RIGHT; candidate++) {
+            int count = 0;
+            for (int result : this.results) {
+                if (result == candidate) count++;
+            }
+            if (count > bestCount) {
+                best = candidate;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The position of the skystone voted on over the last frames, or UNKNOWN if no frame
+     * had a skystone.
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * @return The contrast of the darkest third in the last frame.
+     */
+    public double getContrast() {
+        return this.lastContrast;
+    }
+
+    /**
+     * @return The time it took to process the last frame in nanoseconds.
+     */
+    public long getProcessNanos() {
+        return this.processNanos;
+    }
+
+    /**
+     * @return The amount of frames that have been processed.
+     */
+    public long getFrames() {
+        return this.frames;
+    }
+
+    /**
+     * @return The down-sampled region of the last frame in luminance, row by row. It is changed by
+     * the next frame.
+     */
+    public int[] getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * This method writes a frame into a file, with its size and format first.
+     *
+     * @param pixels The pixels of the frame, stride * height bytes.
+     * @return True if the frame was written.
+     */
+    public static boolean record(File file, byte[] pixels, int width, int height, int stride, int format) {
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new FileOutputStream(file));
+            output.writeInt(width);
+            output.writeInt(height);
+            output.writeInt(stride);
+            output.writeInt(format);
+            output.write(pixels, 0, stride * height);
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    //The frame is already written or lost
+                }
+            }
+        }
+    }
+}
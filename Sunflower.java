@@ -23,20 +23,18 @@ public class Sunflower extends SPQRLinearOpMode {
 
         waitForStart();
 
-        if (opModeIsActive() && !isStopRequested()) {
+        if (this.isActive()) {
 
-            //drive forward, to near the foundation
-            this.drive(5500, 1);
-
-            //strafe to the top of the field
-            this.strafe(Dir.RIGHT, 3000, 1);
-
-            //drive forward to the foundation
-            this.drive(2600, 0.5);
+            //drive forward to near the foundation, over to the top of the field and slowly up
+            //to the foundation
+            this.followPath(new Path()
+                    .add(550, 0, 0, 1)
+                    .add(550, -255, 0, 1)
+                    .add(810, -255, 0, 0.5));
 
             //set tow down
             this.robot.dropTow();
-            this.sleep(1000);
+            this.pause(1000);
 
             //pull back the foundation to the building site
             this.drive(-6900, -0.4);
@@ -58,7 +56,7 @@ public class Sunflower extends SPQRLinearOpMode {
             this.strafe(Dir.LEFT, 10400, 1.0);
         }
 
-//        if (opModeIsActive() && !isStopRequested()) {
+//        if (this.isActive()) {
 //
 //            //drive forward, to near the foundation
 //            this.drive(5500, 1);
@@ -73,7 +71,7 @@ public class Sunflower extends SPQRLinearOpMode {
 //
 //            //drop the tow on the foundation, wait until complete
 //            //tow down
-//            this.sleep(1000);
+//            this.pause(1000);
 //
 //            //pull back the foundation to the building site
 //            this.drive(-8200, -0.4);
@@ -0,0 +1,106 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This class drives forward until a LineDetector sees the tape and says to brake, then waits for
+ * the robot to stop. If the robot was too fast to stop on the middle of the tape, which the
+ * detector knows the position of, it drives back to it slowly. The color sensor LED is on only
+ * while the command runs, and the color is taken from the newest sample of the poller, so the
+ * loop never waits on the sensor.
+ *
+ * @author Arkin Solomon
+ */
+public class TapeStopCommand implements Command {
+
+    //Speed in encoder units per second that counts as stopped
+    public double stoppedVelocity = 20;
+
+    //Power per encoder unit of distance from the middle of the tape when driving back to it, and
+    //the largest power to do it at
+    public double kP = 0.01;
+    public double maxCorrection = 0.3;
+
+    //Largest distance from the middle of the tape in encoder units that counts as on it
+    public double tolerance = 15;
+
+    //Longest time to wait for the robot to stop on the tape after braking, in nanoseconds
+    public long stopTimeout = 1500000000;
+
+    private final SPQRLinearOpMode opMode;
+    private final HardwareSPQR robot;
+    private final LineDetector detector;
+    private final double power;
+    private DcMotor.ZeroPowerBehavior previousBehavior = null;
+    private long brakeTime = 0;
+    private boolean finished = false;
+
+    /**
+     * @param opMode   The opmode that keeps the total encoder counts of the robot.
+     * @param detector The detector of the tape to stop on.
+     * @param power    A double between 0 and 1.0 which is the power to drive forward at.
+     */
+    public TapeStopCommand(SPQRLinearOpMode opMode, LineDetector detector, double power) {
+        this.opMode = opMode;
+        this.robot = opMode.robot;
+        this.detector = detector;
+        this.power = Math.abs(power);
+    }
+
+    @Override
+    public void start(long now) {
+        this.previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
+        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        this.opMode.resetEncoders(DcMotor.RunMode.RUN_USING_ENCODER);
+        this.robot.lineParkSensor.enableLed(true);
+        this.detector.reset();
+        this.brakeTime = 0;
+        this.finished = false;
+
+        //Forward is negative on the encoders
+        this.robot.setPowers(-this.power);
+    }
+
+    @Override
+    public void update(long now) {
+        HardwareSnapshot snapshot = this.robot.snapshot;
+        double velocity = -(snapshot.getVelocity(HardwareSnapshot.LEFT_FRONT) + snapshot.getVelocity(HardwareSnapshot.RIGHT_FRONT) + snapshot.getVelocity(HardwareSnapshot.LEFT_BACK) + snapshot.getVelocity(HardwareSnapshot.RIGHT_BACK)) / 4;
+        if (this.brakeTime == 0) {
+            ColorSensorPoller.Sample sample = this.robot.colorPoller.getSample();
+
+            //The sample is stamped with System.nanoTime(), which may not be the clock of the opmode
+            long sampleTime = now - (System.nanoTime() - sample.time);
+            if (this.detector.update(sample.red, sample.green, sample.blue, sampleTime, now, -snapshot.driveAverage(), velocity)) {
+                this.robot.stopMoving();
+                this.brakeTime = now;
+            }
+            return;
+        }
+
+        //Drive back to the middle of the tape if the robot couldn't stop in time
+        double error = this.detector.getTarget() + snapshot.driveAverage();
+        double correction = Math.abs(error) <= this.tolerance ? 0 : Math.max(-this.maxCorrection, Math.min(this.maxCorrection, this.kP * error));
+        this.robot.setPowers(-correction);
+        boolean stopped = Math.abs(error) <= this.tolerance && Math.abs(velocity) <= this.stoppedVelocity;
+        this.finished = stopped || now - this.brakeTime >= this.stopTimeout;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    @Override
+    public void end() {
+        this.robot.stopMoving();
+        this.robot.lineParkSensor.enableLed(false);
+        this.robot.setDriveZeroPowerBehavior(this.previousBehavior);
+    }
+
+    /**
+     * @return The detector, which has the position of the middle of the tape once it was seen.
+     */
+    public LineDetector getDetector() {
+        return this.detector;
+    }
+}
@@ -0,0 +1,196 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class sends telemetry on its own thread at a fixed rate. The control loop only writes
+ * primitive values (or constant strings) into slots that are created before the opmode starts, so
+ * it never formats, allocates or waits on the driver station connection.
+ *
+ * @author Arkin Solomon
+ */
+public class TelemetryPublisher {
+
+    //Maximum amount of slots and values that can be published
+    private static final int MAX_SLOTS = 48;
+    private static final int MAX_VALUES = 96;
+
+    private final Telemetry telemetry;
+
+    //Slot definitions, only changed before start()
+    private final String[] captions = new String[MAX_SLOTS];
+    private final String[] formats = new String[MAX_SLOTS];
+    private final int[] firstValue = new int[MAX_SLOTS];
+    private final int[] valueCount = new int[MAX_SLOTS];
+    private int slotCount = 0;
+    private int valuesUsed = 0;
+
+    //Values written by the control loop, doubles are stored as their raw bits
+    private final AtomicLongArray values = new AtomicLongArray(MAX_VALUES);
+    private final AtomicReferenceArray<String> text = new AtomicReferenceArray<String>(MAX_SLOTS);
+
+    private ScheduledExecutorService executor = null;
+    private Thread owner = null;
+    private Runnable onStop = null;
+
+    /**
+     * @param telemetry The telemetry of the opmode that is publishing.
+     */
+    public TelemetryPublisher(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * This method creates a slot that holds a single number.
+     *
+     * @param caption The caption shown on the driver station.
+     * @return The index of the slot to write to.
+     */
+    public int addSlot(String caption) {
+        return this.addSlot(caption, "%.2f", 1);
+    }
+
+    /**
+     * This method creates a slot that holds one or more numbers which are formatted together.
+     *
+     * @param caption The caption shown on the driver station.
+     * @param format  The format string with one specifier for each number.
+     * @param count   The amount of numbers in the slot.
+     * @return The index of the slot to write to.
+     */
+    public int addSlot(String caption, String format, int count) {
+        if (this.slotCount >= MAX_SLOTS || this.valuesUsed + count > MAX_VALUES) {
+            throw new IllegalStateException("Too many telemetry slots");
+        }
+        int slot = this.slotCount++;
+        this.captions[slot] = caption;
+        this.formats[slot] = format;
+        this.firstValue[slot] = this.valuesUsed;
+        this.valueCount[slot] = count;
+        this.valuesUsed += count;
+        return slot;
+    }
+
+    /**
+     * This method creates a slot that holds a string. The control loop should only write strings
+     * that already exist, such as constants or names, so that nothing is allocated.
+     *
+     * @param caption The caption shown on the driver station.
+     * @return The index of the slot to write to.
+     */
+    public int addTextSlot(String caption) {
+        return this.addSlot(caption, null, 0);
+    }
+
+    /**
+     * This method writes the first number of a slot without blocking.
+     *
+     * @param slot  The index of the slot.
+     * @param value The value to publish.
+     */
+    public void set(int slot, double value) {
+        this.values.lazySet(this.firstValue[slot], Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * This method writes one of the numbers of a slot without blocking.
+     *
+     * @param slot  The index of the slot.
+     * @param index The index of the number within the slot.
+     * @param value The value to publish.
+     */
+    public void set(int slot, int index, double value) {
+        this.values.lazySet(this.firstValue[slot] + index, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * This method writes the string of a text slot without blocking.
+     *
+     * @param slot  The index of the slot.
+     * @param value The string to publish.
+     */
+    public void setText(int slot, String value) {
+        this.text.lazySet(slot, value);
+    }
+
+    /**
+     * This method starts publishing on a background thread. Publishing stops by itself once the
+     * thread that called this method ends, so a linear opmode doesn't need to stop it.
+     *
+     * @param rate The amount of times per second to send telemetry, for example 4 to 10.
+     */
+    public synchronized void start(double rate) {
+        if (this.executor != null) return;
+        this.owner = Thread.currentThread();
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "TelemetryPublisher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = (long) (1000000000 / rate);
+        this.executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                publish();
+            }
+        }, 0, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * This method sets something to run on the publishing thread once publishing stops, such as a
+     * final summary.
+     *
+     * @param onStop The task to run.
+     */
+    public void setOnStop(Runnable onStop) {
+        this.onStop = onStop;
+    }
+
+    /**
+     * This method stops publishing.
+     */
+    public synchronized void stop() {
+        if (this.executor == null) return;
+        this.executor.shutdown();
+        this.executor = null;
+    }
+
+    /**
+     * This method formats every slot and sends it to the driver station. This runs on the
+     * publishing thread only.
+     */
+    private void publish() {
+        try {
+            for (int slot = 0; slot < this.slotCount; slot++) {
+                if (this.formats[slot] == null) {
+                    String value = this.text.get(slot);
+                    this.telemetry.addData(this.captions[slot], value == null ? "" : value);
+                    continue;
+                }
+                Object[] args = new Object[this.valueCount[slot]];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = Double.longBitsToDouble(this.values.get(this.firstValue[slot] + i));
+                }
+                this.telemetry.addData(this.captions[slot], this.formats[slot], args);
+            }
+            this.telemetry.update();
+        } catch (RuntimeException e) {
+
+            //Never let a telemetry error stop the schedule
+        }
+        if (this.owner != null && !this.owner.isAlive()) {
+            this.stop();
+            if (this.onStop != null) this.onStop.run();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class moves the tow to a position and finishes once the tow motor is no longer busy. The
+ * tow can stall against the foundation or a block before it reaches the target, so the command
+ * also finishes after a timeout.
+ *
+ * @author Arkin Solomon
+ */
+public class TowCommand implements Command {
+
+    private final HardwareSPQR robot;
+    private final int target;
+    private final long timeout;
+    private long deadline = 0;
+    private boolean finished = false;
+
+    /**
+     * @param robot        The robot to move the tow of.
+     * @param target       The position of the tow in encoder units.
+     * @param milliseconds The longest time to wait for the tow.
+     */
+    public TowCommand(HardwareSPQR robot, int target, long milliseconds) {
+        this.robot = robot;
+        this.target = target;
+        this.timeout = milliseconds * 1000000;
+    }
+
+    /**
+     * This method creates a command that drops the tow onto the foundation or a block, the same as
+     * HardwareSPQR.dropTow().
+     *
+     * @param robot The robot to move the tow of.
+     * @return The command.
+     */
+    public static TowCommand drop(HardwareSPQR robot) {
+        return new TowCommand(robot, HardwareSPQR.towDownPosition, 1000);
+    }
+
+    /**
+     * This method creates a command that raises the tow to its initial position, the same as
+     * HardwareSPQR.raiseTow().
+     *
+     * @param robot The robot to move the tow of.
+     * @return The command.
+     */
+    public static TowCommand raise(HardwareSPQR robot) {
+        return new TowCommand(robot, HardwareSPQR.towUpPosition, 1000);
+    }
+
+    @Override
+    public void start(long now) {
+        this.robot.tow.setTargetPosition(this.target);
+        this.robot.tow.setPower(HardwareSPQR.towPower);
+        this.deadline = now + this.timeout;
+        this.finished = false;
+    }
+
+    @Override
+    public void update(long now) {
+        this.finished = !this.robot.snapshot.isTowBusy() || now >= this.deadline;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    @Override
+    public void end() {
+
+        //The tow keeps holding its target after the command ends
+    }
+}
@@ -0,0 +1,41 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This interface is a move from rest to rest along one axis over time, such as the distance of a
+ * drive segment or the angle of a turn. It is computed by MotionProfile, or read from samples of
+ * one by SampledTrajectory so that it doesn't have to be computed during a match.
+ *
+ * @author Arkin Solomon
+ */
+public interface Trajectory {
+
+    /**
+     * @param t The time since the start of the move in seconds.
+     * @return The distance that should have been covered.
+     */
+    double getPosition(double t);
+
+    /**
+     * @param t The time since the start of the move in seconds.
+     * @return The velocity in units per second.
+     */
+    double getVelocity(double t);
+
+    /**
+     * @param t The time since the start of the move in seconds.
+     * @return The acceleration in units per second squared.
+     */
+    double getAcceleration(double t);
+
+    /**
+     * @return The time the move takes in seconds.
+     */
+    double getDuration();
+
+    /**
+     * @return The time spent speeding up in seconds, which is also the time spent slowing down.
+     */
+    double getAccelerationTime();
+
+    double getDistance();
+}
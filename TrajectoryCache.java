@@ -0,0 +1,219 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the sampled trajectories of a routine so that no profile has to be computed
+ * during a match. During init the routine is run once in the simulator, which asks for every
+ * trajectory it needs, loading them from the file of the routine or computing the ones that aren't
+ * in it, so a file made with other limits only costs time during init. The cache is saved after init if anything was computed. The
+ * files can also be made ahead of time on a desktop by DesktopRuntime, which runs every routine in
+ * the simulator. A trajectory that still has to be computed after the start is logged as a warning,
+ * since it means the routine didn't prepare it.
+ *
+ * The file is big-endian: the magic number, the version and the amount of trajectories, then for
+ * each trajectory the four limits it was made from as doubles, the period, duration, acceleration
+ * time and distance as floats, the amount of samples, and the positions, velocities and
+ * accelerations as floats.
+ *
+ * @author Arkin Solomon
+ */
+public class TrajectoryCache {
+
+    //Start of every file, "SPQT"
+    private static final int MAGIC = 0x53505154;
+    private static final int VERSION = 1;
+
+    //Time between samples in seconds
+    public double period = 0.005;
+
+    private final HashMap<String, SampledTrajectory> trajectories = new HashMap<String, SampledTrajectory>();
+    private final HashMap<String, double[]> limits = new HashMap<String, double[]>();
+    private boolean changed = false;
+
+    //True once the routine has started, and the amount of trajectories computed since then
+    private boolean started = false;
+    private int lateMisses = 0;
+
+    /**
+     * This method finds the trajectory of a move, computing and sampling it if it isn't cached.
+     *
+     * @param distance        The length of the move.
+     * @param maxVelocity     The largest velocity in units per second.
+     * @param maxAcceleration The largest acceleration in units per second squared.
+     * @param maxJerk         The largest rate of change of acceleration in units per second cubed.
+     * @return The trajectory.
+     */
+    public synchronized Trajectory get(double distance, double maxVelocity, double maxAcceleration, double maxJerk) {
+        double[] key = {Math.abs(distance), Math.abs(maxVelocity), Math.abs(maxAcceleration), Math.abs(maxJerk)};
+        String name = keyOf(key);
+        SampledTrajectory trajectory = this.trajectories.get(name);
+        if (trajectory == null) {
+            if (this.started) {
+                this.lateMisses++;
+                RobotLog.ww("TrajectoryCache", "Computing %s after the start, it should be prepared during init", name);
+            }
+            trajectory = SampledTrajectory.sample(new MotionProfile(key[0], key[1], key[2], key[3]), this.period);
+            this.put(key, trajectory);
+            this.changed = true;
+        }
+        return trajectory;
+    }
+
+    private void put(double[] key, SampledTrajectory trajectory) {
+        String name = keyOf(key);
+        this.trajectories.put(name, trajectory);
+        this.limits.put(name, key);
+    }
+
+    private static String keyOf(double[] key) {
+        return key[0] + "/" + key[1] + "/" + key[2] + "/" + key[3];
+    }
+
+    /**
+     * This method marks the start of the routine. Every trajectory that is computed after this is
+     * logged as a warning.
+     */
+    public synchronized void markStarted() {
+        this.started = true;
+    }
+
+    /**
+     * @return The amount of trajectories that were computed after the start.
+     */
+    public synchronized int getLateMisses() {
+        return this.lateMisses;
+    }
+
+    /**
+     * @return The amount of cached trajectories.
+     */
+    public synchronized int size() {
+        return this.trajectories.size();
+    }
+
+    /**
+     * @return True if trajectories were computed since the cache was last loaded or saved.
+     */
+    public synchronized boolean isChanged() {
+        return this.changed;
+    }
+
+    /**
+     * This method reads the trajectories in a file into the cache. The file is memory mapped and
+     * copied into arrays once, so nothing is read from storage after this.
+     *
+     * @param file The file saved by save().
+     * @return True if the file was read, false if it doesn't exist or isn't a trajectory file.
+     */
+    public synchronized boolean load(File file) {
+        if (!file.isFile()) return false;
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return false;
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                double[] key = {buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble()};
+                float period = buffer.getFloat();
+                float duration = buffer.getFloat();
+                float accelerationTime = buffer.getFloat();
+                float distance = buffer.getFloat();
+                int samples = buffer.getInt();
+                float[] positions = new float[samples];
+                float[] velocities = new float[samples];
+                float[] accelerations = new float[samples];
+                buffer.asFloatBuffer().get(positions);
+                buffer.position(buffer.position() + samples * 4);
+                buffer.asFloatBuffer().get(velocities);
+                buffer.position(buffer.position() + samples * 4);
+                buffer.asFloatBuffer().get(accelerations);
+                buffer.position(buffer.position() + samples * 4);
+                this.put(key, new SampledTrajectory(period, duration, accelerationTime, distance, positions, velocities, accelerations));
+            }
+            this.changed = false;
+            return true;
+        } catch (IOException e) {
+            RobotLog.ww("TrajectoryCache", "Couldn't read %s: %s", file, e.getMessage());
+            return false;
+        } catch (BufferUnderflowException e) {
+            RobotLog.ww("TrajectoryCache", "%s is cut off", file);
+            return false;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    //Nothing was written, so there's nothing to lose
+                }
+            }
+        }
+    }
+
+    /**
+     * This method writes every cached trajectory to a file, creating its folder if needed.
+     *
+     * @param file The file to write.
+     * @return True if the file was written.
+     */
+    public synchronized boolean save(File file) {
+        File folder = file.getParentFile();
+        if (folder != null && !folder.isDirectory() && !folder.mkdirs()) return false;
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(this.trajectories.size());
+            for (Map.Entry<String, SampledTrajectory> entry : this.trajectories.entrySet()) {
+                for (double limit : this.limits.get(entry.getKey())) {
+                    output.writeDouble(limit);
+                }
+                SampledTrajectory trajectory = entry.getValue();
+                output.writeFloat(trajectory.period);
+                output.writeFloat(trajectory.duration);
+                output.writeFloat(trajectory.accelerationTime);
+                output.writeFloat(trajectory.distance);
+                output.writeInt(trajectory.positions.length);
+                for (float value : trajectory.positions) {
+                    output.writeFloat(value);
+                }
+                for (float value : trajectory.velocities) {
+                    output.writeFloat(value);
+                }
+                for (float value : trajectory.accelerations) {
+                    output.writeFloat(value);
+                }
+            }
+            output.close();
+            output = null;
+            this.changed = false;
+            return true;
+        } catch (IOException e) {
+            RobotLog.ww("TrajectoryCache", "Couldn't write %s: %s", file, e.getMessage());
+            return false;
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    //The write already failed
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * This class turns the robot by an angle with the IMU heading. The setpoint follows a motion
+ * profile and a HeadingController tracks it, so the robot turns quickly without overshooting. The
+ * command finishes once the heading error and the rate of turn are both within tolerance, or after
+ * a timeout, and then reports the angle that was turned and how long it took to settle.
+ *
+ * @author Arkin Solomon
+ */
+public class TurnCommand implements Command {
+
+    public final HeadingController controller = new HeadingController();
+
+    //Longest time to wait for the robot to settle after the profile ends, in nanoseconds
+    public long settleTimeout = 1000000000;
+
+    private final SPQRLinearOpMode opMode;
+    private final HardwareSPQR robot;
+    private final double angle;
+    private final Trajectory profile;
+    private DcMotor.ZeroPowerBehavior previousBehavior = null;
+    private double startHeading = 0;
+    private long startTime = 0;
+
+    //Last new heading from the service, used to find the rate of turn
+    private double lastHeading = 0;
+    private long lastHeadingTime = 0;
+    private long lastSampleTime = 0;
+    private double rate = 0;
+    private boolean finished = false;
+
+    //Results of the turn
+    private double achievedAngle = 0;
+    private long settleTime = 0;
+
+    /**
+     * @param opMode  The opmode that keeps the total encoder counts of the robot.
+     * @param angle   The angle to turn in radians, counterclockwise.
+     * @param profile The profile of the size of the angle.
+     */
+    public TurnCommand(SPQRLinearOpMode opMode, double angle, Trajectory profile) {
+        this.opMode = opMode;
+        this.robot = opMode.robot;
+        this.angle = angle;
+        this.profile = profile;
+    }
+
+    @Override
+    public void start(long now) {
+        this.previousBehavior = this.robot.leftFrontDrive.getZeroPowerBehavior();
+        this.robot.setDriveZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        this.opMode.resetEncoders(DcMotor.RunMode.RUN_USING_ENCODER);
+        this.controller.reset();
+        this.startHeading = this.robot.headingService.getContinuousHeading();
+        this.startTime = now;
+        this.lastHeading = this.startHeading;
+        this.lastHeadingTime = now;
+        this.lastSampleTime = this.robot.headingService.getTime();
+        this.rate = 0;
+        this.finished = false;
+    }
+
+    @Override
+    public void update(long now) {
+        double t = (now - this.startTime) / 1e9;
+        double direction = Math.signum(this.angle);
+        double setpoint = this.startHeading + direction * this.profile.getPosition(t);
+        double heading = this.robot.headingService.getContinuousHeading();
+
+        //The service samples slower than the loop, so the rate is only found when the heading is new
+        long sampleTime = this.robot.headingService.getTime();
+        if (sampleTime != this.lastSampleTime && now > this.lastHeadingTime) {
+            this.rate = (heading - this.lastHeading) * 1e9 / (now - this.lastHeadingTime);
+            this.lastHeading = heading;
+            this.lastHeadingTime = now;
+            this.lastSampleTime = sampleTime;
+        }
+        double power = this.controller.update(setpoint, direction * this.profile.getVelocity(t), direction * this.profile.getAcceleration(t), heading, this.rate, now);
+
+        //Positive power drives the wheels backward, so a positive power turns counterclockwise with
+        //the left wheels going backward and the right wheels forward
+        this.robot.tank(power, -power);
+
+        this.achievedAngle = heading - this.startHeading;
+        long ended = now - this.startTime - (long) (this.profile.getDuration() * 1e9);
+        if (ended >= 0 && (this.controller.isSettled() || ended >= this.settleTimeout)) {
+            this.settleTime = now - this.startTime;
+            this.finished = true;
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    @Override
+    public void end() {
+        this.robot.stopMoving();
+        this.robot.setDriveZeroPowerBehavior(this.previousBehavior);
+    }
+
+    /**
+     * @return The angle that the robot turned in radians, counterclockwise.
+     */
+    public double getAchievedAngle() {
+        return this.achievedAngle;
+    }
+
+    /**
+     * @return The time from the start of the turn until it settled in nanoseconds.
+     */
+    public long getSettleTime() {
+        return this.settleTime;
+    }
+
+    /**
+     * @return The angle that was asked for in radians, counterclockwise.
+     */
+    public double getAngle() {
+        return this.angle;
+    }
+}
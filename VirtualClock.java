@@ -0,0 +1,28 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class is a clock that only moves when it is told to. It is used to run opmodes in simulated
+ * time, so waiting a second takes no real time.
+ *
+ * @author Arkin Solomon
+ */
+public class VirtualClock {
+
+    private volatile long time = 0;
+
+    /**
+     * @return The time in nanoseconds since the clock was created.
+     */
+    public long nanoTime() {
+        return this.time;
+    }
+
+    /**
+     * This method moves the clock forward.
+     *
+     * @param nanoseconds The amount of time to move forward.
+     */
+    public void advance(long nanoseconds) {
+        if (nanoseconds > 0) this.time += nanoseconds;
+    }
+}
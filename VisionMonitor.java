@@ -0,0 +1,176 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.lang.reflect.Method;
+
+/**
+ * This class measures what vision costs the phone. It only measures, it doesn't change how frames
+ * are processed or tracked.
+ *
+ * Two things are measured. The threads of this code that process frames, the skystone detector and
+ * the pose tracker, tell the monitor how much CPU time they spent on each frame, read from the
+ * thread itself so time spent waiting isn't counted. That doesn't include Vuforia, which tracks
+ * every camera frame on its own native threads. So the CPU time of the whole app process is sampled
+ * as well, which does include Vuforia, along with the opmode and everything else in the app. It is
+ * given as the share of one core the app used and as the app's CPU time for each processed frame.
+ *
+ * @author Arkin Solomon
+ */
+public class VisionMonitor {
+
+    //Weight of each new frame in the averages
+    private static final double smoothing = 0.1;
+
+    //Shortest time between samples of the process CPU time in nanoseconds, so the load is steady
+    private static final long samplePeriod = 500000000L;
+
+    //CPU time of the current thread, from Android if it is there and from the desktop JVM if not
+    private static Object threadBean = null;
+    private static Method cpuTime = null;
+
+    //CPU time of the whole process, in milliseconds on Android and in nanoseconds on the desktop
+    private static Object processBean = null;
+    private static Method processCpuTime = null;
+    private static long processCpuScale = 1;
+
+    static {
+        try {
+            cpuTime = Class.forName("android.os.Debug").getMethod("threadCpuTimeNanos");
+        } catch (Exception e) {
+            try {
+                threadBean = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+                cpuTime = Class.forName("java.lang.management.ThreadMXBean").getMethod("getCurrentThreadCpuTime");
+            } catch (Exception e2) {
+                threadBean = null;
+                cpuTime = null;
+            }
+        }
+        try {
+            processCpuTime = Class.forName("android.os.Process").getMethod("getElapsedCpuTime");
+            processCpuScale = 1000000;
+        } catch (Exception e) {
+            try {
+                processBean = Class.forName("java.lang.management.ManagementFactory").getMethod("getOperatingSystemMXBean").invoke(null);
+                processCpuTime = Class.forName("com.sun.management.OperatingSystemMXBean").getMethod("getProcessCpuTime");
+                processCpuScale = 1;
+            } catch (Exception e2) {
+                processBean = null;
+                processCpuTime = null;
+            }
+        }
+    }
+
+    //Published values, read by any thread
+    private volatile double cpuPerFrame = 0;
+    private volatile double framePeriod = 0;
+    private volatile long lastFrame = 0;
+    private volatile long processed = 0;
+    private volatile double processLoad = 0;
+    private volatile double processCpuPerFrame = 0;
+
+    //Last sample of the process CPU time, only used by the thread that calls sample()
+    private long lastSample = 0;
+    private long lastProcessCpu = 0;
+    private long lastProcessed = 0;
+
+    /**
+     * This method records a processed frame. It is called by the thread that processed it.
+     *
+     * @param cpuNanos The CPU time it took to process the frame in nanoseconds, negative if it
+     *                 couldn't be measured.
+     * @param now      The time the frame was finished in nanoseconds.
+     */
+    public void recordFrame(long cpuNanos, long now) {
+        if (cpuNanos >= 0) this.cpuPerFrame += (cpuNanos - this.cpuPerFrame) * (this.processed == 0 ? 1 : smoothing);
+        if (this.lastFrame != 0) {
+            long period = now - this.lastFrame;
+            this.framePeriod += (period - this.framePeriod) * (this.framePeriod == 0 ? 1 : smoothing);
+        }
+        this.lastFrame = now;
+        this.processed++;
+    }
+
+    /**
+     * This method samples the CPU time of the process. It should be called regularly from one
+     * thread, such as the one that shows telemetry, and only samples once the last sample is old
+     * enough.
+     *
+     * @param now The current time in nanoseconds.
+     */
+    public void sample(long now) {
+        if (this.lastSample != 0 && now - this.lastSample < samplePeriod) return;
+        long cpu = processCpuTime();
+        if (cpu < 0) return;
+        long frames = this.processed;
+        if (this.lastSample != 0) {
+            long used = cpu - this.lastProcessCpu;
+            this.processLoad = (double) used / (now - this.lastSample);
+            this.processCpuPerFrame = frames > this.lastProcessed ? (double) used / (frames - this.lastProcessed) : 0;
+        }
+        this.lastSample = now;
+        this.lastProcessCpu = cpu;
+        this.lastProcessed = frames;
+    }
+
+    /**
+     * @return The CPU time used by the current thread in nanoseconds, or -1 if it can't be read.
+     */
+    public static long threadCpuTime() {
+        if (cpuTime == null) return -1;
+        try {
+            return (Long) cpuTime.invoke(threadBean);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return The CPU time used by the whole process in nanoseconds, or -1 if it can't be read.
+     */
+    public static long processCpuTime() {
+        if (processCpuTime == null) return -1;
+        try {
+            return (Long) processCpuTime.invoke(processBean) * processCpuScale;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return The average CPU time this code spent processing a frame in nanoseconds, not counting
+     * the tracking done by Vuforia.
+     */
+    public double getCpuPerFrame() {
+        return this.cpuPerFrame;
+    }
+
+    /**
+     * @return The average amount of frames processed each second.
+     */
+    public double getFrameRate() {
+        return this.framePeriod == 0 ? 0 : 1e9 / this.framePeriod;
+    }
+
+    /**
+     * @return The amount of frames that were processed.
+     */
+    public long getProcessedFrames() {
+        return this.processed;
+    }
+
+    /**
+     * @return The CPU time the whole process used between the last two samples, as a fraction of
+     * one core. It can be more than 1 on a phone with several cores.
+     */
+    public double getProcessLoad() {
+        return this.processLoad;
+    }
+
+    /**
+     * @return The CPU time the whole process used between the last two samples in nanoseconds,
+     * divided by the frames processed in that time, or 0 if no frame was processed. This includes
+     * the tracking done by Vuforia.
+     */
+    public double getProcessCpuPerFrame() {
+        return this.processCpuPerFrame;
+    }
+}
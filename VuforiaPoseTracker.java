@@ -0,0 +1,402 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
+import org.firstinspires.ftc.robotcore.external.matrices.VectorF;
+import org.firstinspires.ftc.robotcore.external.navigation.VuforiaLocalizer;
+import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackable;
+import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackableDefaultListener;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class finds the location of the robot from the Vuforia trackables on its own thread. The
+ * thread waits for each camera frame and then checks the listeners of the trackables once, so they
+ * aren't checked again and again between frames. When more than one target is seen in a frame,
+ * their locations are combined by how far away and how squarely each target was seen, and a
+ * location that disagrees with the rest is left out. Each location is published as a sample that never
+ * changes, so navigation code can read the newest one at any time without locking or touching
+ * Vuforia.
+ *
+ * @author Arkin Solomon
+ */
+public class VuforiaPoseTracker {
+
+    /**
+     * This class is the location of the robot after one camera frame. The location is the last one
+     * that was seen, so it is kept while no target is visible, and its time is the time of the frame
+     * it was seen in. The view of a location is shared by every sample until a new location is seen.
+     */
+    public static class Sample {
+
+        //True if a target was visible in the frame, and the name of it
+        public final boolean visible;
+        public final String target;
+
+        //Last location of the robot on the field, VuforiaPoseView.NONE if it hasn't been seen
+        public final VuforiaPoseView view;
+
+        //Time of the frame the location was seen in nanoseconds, from System.nanoTime()
+        public final long time;
+
+        //Amount of frames checked when this was published
+        public final long frame;
+
+        //Amount of targets the location was combined from, and the standard deviation of its
+        //position in millimeters
+        public final int targets;
+        public final double uncertainty;
+
+        Sample(boolean visible, String target, VuforiaPoseView view, long time, long frame, int targets, double uncertainty) {
+            this.visible = visible;
+            this.target = target;
+            this.view = view;
+            this.time = time;
+            this.frame = frame;
+            this.targets = targets;
+            this.uncertainty = uncertainty;
+        }
+
+        /**
+         * @return True if the robot has been seen at least once.
+         */
+        public boolean hasLocation() {
+            return this.view.hasLocation();
+        }
+
+        /**
+         * @return The location as a pose with the heading in radians, or null if the robot hasn't
+         * been seen.
+         */
+        public Pose toPose() {
+            return this.view.hasLocation() ? new Pose(this.view.x, this.view.y, Math.toRadians(this.view.heading), this.time) : null;
+        }
+    }
+
+    //Longest time to wait for a frame before checking if the tracker should stop, in milliseconds
+    private static final long frameTimeout = 100;
+
+    //Time from when a frame is taken until it is given to the tracker in nanoseconds
+    public long cameraLatency = 60000000;
+
+    //Standard deviation of a location from a target straight in front of the camera at the
+    //reference distance, in millimeters and degrees. It grows with the distance to the target and
+    //as the target is seen more from the side, down to the smallest facing, the cosine of the angle
+    public double positionNoise = 40;
+    public double headingNoise = 3;
+    public double referenceDistance = 1000;
+    public double minimumFacing = 0.2;
+
+    //Largest distance from the consensus of a location that is combined, in millimeters or in
+    //standard deviations of the location if that is farther, and largest difference in heading in
+    //degrees
+    public double outlierDistance = 150;
+    public double outlierDeviations = 4;
+    public double outlierAngle = 15;
+
+    private final VuforiaLocalizer vuforia;
+    private final VuforiaTrackableDefaultListener[] listeners;
+    private final String[] names;
+
+    //Locations of one frame, used by the tracking thread
+    private final VuforiaPoseView[] views;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] weights;
+    private final int[] indexes;
+    private final boolean[] used;
+    private volatile long rejected = 0;
+
+    //Newest sample, read by any thread
+    private final AtomicReference<Sample> sample = new AtomicReference<Sample>(new Sample(false, null, VuforiaPoseView.NONE, 0, 0, 0, Double.POSITIVE_INFINITY));
+
+    private Thread thread = null;
+    private volatile boolean running = false;
+
+    //Filter that each new location is given to, or null
+    private volatile PoseFusion fusion = null;
+
+    //Monitor that the CPU time of each frame is given to, or null
+    private volatile VisionMonitor monitor = null;
+
+    /**
+     * @param vuforia    The Vuforia engine that the trackables were loaded from, which gives the
+     *                   camera frames.
+     * @param trackables Every trackable to find the robot from.
+     */
+    public VuforiaPoseTracker(VuforiaLocalizer vuforia, List<VuforiaTrackable> trackables) {
+        this(vuforia, trackables.size());
+        for (int i = 0; i < this.listeners.length; i++) {
+            this.listeners[i] = (VuforiaTrackableDefaultListener) trackables.get(i).getListener();
+            this.names[i] = trackables.get(i).getName();
+        }
+    }
+
+    /**
+     * This constructor makes a tracker without trackables, which can only combine locations given
+     * to combine(), such as on the desktop.
+     *
+     * @param vuforia The Vuforia engine, or null.
+     * @param targets The amount of targets.
+     */
+    VuforiaPoseTracker(VuforiaLocalizer vuforia, int targets) {
+        this.vuforia = vuforia;
+        this.listeners = new VuforiaTrackableDefaultListener[targets];
+        this.names = new String[targets];
+        this.views = new VuforiaPoseView[targets];
+        this.xs = new double[targets];
+        this.ys = new double[targets];
+        this.weights = new double[targets];
+        this.indexes = new int[targets];
+        this.used = new boolean[targets];
+    }
+
+    /**
+     * This method starts checking the trackables on a background thread once per camera frame. The
+     * trackables should be activated first. Tracking stops by itself once the thread that called
+     * this method ends.
+     */
+    public synchronized void start() {
+        if (this.thread != null) return;
+        final Thread owner = Thread.currentThread();
+        this.vuforia.setFrameQueueCapacity(1);
+        this.running = true;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                BlockingQueue<VuforiaLocalizer.CloseableFrame> frames = vuforia.getFrameQueue();
+                while (running && owner.isAlive()) {
+                    VuforiaLocalizer.CloseableFrame frame;
+                    try {
+                        frame = frames.poll(frameTimeout, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (frame == null) continue;
+
+                    //Only the arrival of the frame is needed, the listeners have the locations
+                    frame.close();
+                    VisionMonitor monitor = VuforiaPoseTracker.this.monitor;
+                    if (monitor == null) {
+                        update();
+                    } else {
+                        long cpu = VisionMonitor.threadCpuTime();
+                        update();
+                        monitor.recordFrame(cpu < 0 ? -1 : VisionMonitor.threadCpuTime() - cpu, System.nanoTime());
+                    }
+                }
+            }
+        }, "VuforiaPoseTracker");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * This method stops tracking.
+     */
+    public synchronized void stop() {
+        if (this.thread == null) return;
+        this.running = false;
+        this.thread.interrupt();
+        this.thread = null;
+    }
+
+    /**
+     * This method checks every trackable once and publishes the location of the robot from every
+     * target with a new location. This runs on the tracking thread only, unless the tracker wasn't
+     * started.
+     */
+    void update() {
+        long now = System.nanoTime() - this.cameraLatency;
+        Sample last = this.sample.get();
+        int count = 0;
+        int visible = -1;
+        for (int i = 0; i < this.listeners.length; i++) {
+            if (!this.listeners[i].isVisible()) continue;
+            if (visible == -1) visible = i;
+
+            //getUpdatedRobotLocation() returns null if nothing has changed since it was last called
+            OpenGLMatrix location = this.listeners[i].getUpdatedRobotLocation();
+            if (location == null) continue;
+            VuforiaPoseView view = new VuforiaPoseView(location);
+            this.views[count] = view;
+            this.xs[count] = view.x;
+            this.ys[count] = view.y;
+            this.indexes[count] = i;
+
+            //A target that is far away or seen from the side gives a worse location
+            double scale = 1;
+            OpenGLMatrix target = this.listeners[i].getPose();
+            if (target != null) {
+                VectorF translation = target.getTranslation();
+                double distance = Math.sqrt(translation.get(0) * translation.get(0) + translation.get(1) * translation.get(1) + translation.get(2) * translation.get(2));
+                double facing = distance == 0 ? 1 : Math.abs(translation.get(0) * target.get(0, 2) + translation.get(1) * target.get(1, 2) + translation.get(2) * target.get(2, 2)) / distance;
+                scale = Math.max(distance / this.referenceDistance, 0.1) / Math.max(facing, this.minimumFacing);
+            }
+            this.weights[count] = 1 / (scale * scale);
+            count++;
+        }
+        if (count == 0) {
+            this.sample.set(new Sample(visible != -1, visible == -1 ? null : this.names[visible], last.view, last.time, last.frame + 1, last.targets, last.uncertainty));
+            return;
+        }
+        Sample sample = this.combine(count, now, last.frame + 1);
+        for (int i = 0; i < count; i++) {
+            this.views[i] = null;
+        }
+        this.sample.set(sample);
+        PoseFusion fusion = this.fusion;
+        if (fusion != null) fusion.addFix(sample.toPose(), sample.uncertainty, Math.toRadians(this.headingNoise) * sample.uncertainty / this.positionNoise);
+    }
+
+    /**
+     * This method combines the locations from every target seen in one frame. The consensus is the
+     * weighted median, which one bad target can't move far, and locations too far from it are left
+     * out. The rest are averaged by their weights.
+     *
+     * @param count The amount of locations in the views, positions and weights.
+     * @param time  The time the frame was taken in nanoseconds.
+     * @param frame The amount of frames checked.
+     * @return The sample of the combined location.
+     */
+    Sample combine(int count, long time, long frame) {
+        double medianX = weightedMedian(this.xs, this.weights, count);
+        double medianY = weightedMedian(this.ys, this.weights, count);
+
+        //Heading of the best location near the consensus, to check the headings against
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            double limit = Math.max(this.outlierDistance, this.outlierDeviations * this.positionNoise / Math.sqrt(this.weights[i]));
+            this.used[i] = Math.hypot(this.xs[i] - medianX, this.ys[i] - medianY) <= limit;
+            if (this.used[i] && (best == -1 || this.weights[i] > this.weights[best])) best = i;
+        }
+
+        //If every location disagrees with the consensus the best one is used alone
+        if (best == -1) {
+            best = 0;
+            for (int i = 1; i < count; i++) {
+                if (this.weights[i] > this.weights[best]) best = i;
+            }
+            this.used[best] = true;
+        }
+        double totalWeight = 0;
+        double x = 0, y = 0, z = 0, roll = 0, pitch = 0, sin = 0, cos = 0;
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            if (!this.used[i]) continue;
+            VuforiaPoseView view = this.views[i];
+            double headingError = Pose.normalize(Math.toRadians(view.heading - this.views[best].heading));
+            if (Math.abs(headingError) > Math.toRadians(this.outlierAngle)) continue;
+            double weight = this.weights[i];
+            totalWeight += weight;
+            x += weight * view.x;
+            y += weight * view.y;
+            z += weight * view.z;
+            roll += weight * view.roll;
+            pitch += weight * view.pitch;
+            sin += weight * Math.sin(Math.toRadians(view.heading));
+            cos += weight * Math.cos(Math.toRadians(view.heading));
+            used++;
+        }
+        this.rejected += count - used;
+        VuforiaPoseView view = used == 1 ? this.views[best] : new VuforiaPoseView(x / totalWeight, y / totalWeight, z / totalWeight, roll / totalWeight, pitch / totalWeight, Math.toDegrees(Math.atan2(sin, cos)));
+
+        //Each location that agrees makes the combined one more certain
+        double uncertainty = this.positionNoise / Math.sqrt(totalWeight);
+        return new Sample(true, this.names[this.indexes[best]], view, time, frame, used, uncertainty);
+    }
+
+    /**
+     * This method combines locations that are given instead of read from the trackables, such as
+     * to check the combining on the desktop.
+     *
+     * @param views   The location from each target that has one.
+     * @param weights The weight of each location, the inverse of its variance compared to a
+     *                location from a target straight in front of the camera at the reference
+     *                distance.
+     * @param count   The amount of locations.
+     * @param time    The time the frame was taken in nanoseconds.
+     * @return The sample of the combined location.
+     */
+    Sample combine(VuforiaPoseView[] views, double[] weights, int count, long time) {
+        for (int i = 0; i < count; i++) {
+            this.views[i] = views[i];
+            this.xs[i] = views[i].x;
+            this.ys[i] = views[i].y;
+            this.weights[i] = weights[i];
+            this.indexes[i] = i;
+        }
+        Sample sample = this.combine(count, time, this.sample.get().frame + 1);
+        this.sample.set(sample);
+        return sample;
+    }
+
+    /**
+     * This method finds the value that has half of the weight on each side of it.
+     */
+    private static double weightedMedian(double[] values, double[] weights, int count) {
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weights[i];
+        }
+        for (int i = 0; i < count; i++) {
+            double below = 0;
+            double equal = 0;
+            for (int j = 0; j < count; j++) {
+                if (values[j] < values[i]) below += weights[j];
+                else if (values[j] == values[i]) equal += weights[j];
+            }
+            if (below <= total / 2 && below + equal >= total / 2) return values[i];
+        }
+        return values[0];
+    }
+
+    /**
+     * This method gives every new location to a filter, such as the pose fusion of the robot, as a
+     * fix stamped with the time its frame was taken.
+     *
+     * @param fusion The filter, or null to stop.
+     */
+    public void setFusion(PoseFusion fusion) {
+        this.fusion = fusion;
+    }
+
+    /**
+     * This method sets the monitor that records how long checking the frames takes.
+     *
+     * @param monitor The monitor, or null to not measure the frames.
+     */
+    public void setMonitor(VisionMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * This method publishes a location without Vuforia, such as a known starting location.
+     *
+     * @param location The location of the robot on the field.
+     * @param target   The name of the target it was seen from, or null.
+     * @param time     The time the location was measured in nanoseconds, from System.nanoTime().
+     */
+    public void setLocation(OpenGLMatrix location, String target, long time) {
+        Sample last = this.sample.get();
+        this.sample.set(new Sample(target != null, target, new VuforiaPoseView(location), time, last.frame, 1, this.positionNoise));
+    }
+
+    /**
+     * This method returns the newest location without waiting on Vuforia.
+     *
+     * @return The newest sample.
+     */
+    public Sample getSample() {
+        return this.sample.get();
+    }
+
+    /**
+     * @return The amount of locations that were left out for disagreeing with the other targets.
+     */
+    public long getRejected() {
+        return this.rejected;
+    }
+}
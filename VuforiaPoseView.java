@@ -0,0 +1,89 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
+import org.firstinspires.ftc.robotcore.external.matrices.VectorF;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+
+import static org.firstinspires.ftc.robotcore.external.navigation.AngleUnit.DEGREES;
+import static org.firstinspires.ftc.robotcore.external.navigation.AxesOrder.XYZ;
+import static org.firstinspires.ftc.robotcore.external.navigation.AxesReference.EXTRINSIC;
+
+/**
+ * This class is a location from Vuforia split into its translation and rotation. The matrix is
+ * only taken apart once when a new location arrives, and the same view is then read as plain
+ * fields until the next one, so the navigation loop never decomposes the matrix or allocates a
+ * VectorF or Orientation itself.
+ *
+ * @author Arkin Solomon
+ */
+public final class VuforiaPoseView {
+
+    //View of no location, where every value is zero
+    public static final VuforiaPoseView NONE = new VuforiaPoseView();
+
+    //Location that the view was made from, null if there isn't one
+    public final OpenGLMatrix location;
+
+    //Position in millimeters
+    public final double x;
+    public final double y;
+    public final double z;
+
+    //Rotation in degrees, extrinsic in the order X, Y, Z
+    public final double roll;
+    public final double pitch;
+    public final double heading;
+
+    private VuforiaPoseView() {
+        this.location = null;
+        this.x = 0;
+        this.y = 0;
+        this.z = 0;
+        this.roll = 0;
+        this.pitch = 0;
+        this.heading = 0;
+    }
+
+    /**
+     * @param location The location of the robot on the field.
+     */
+    public VuforiaPoseView(OpenGLMatrix location) {
+        VectorF translation = location.getTranslation();
+        Orientation rotation = Orientation.getOrientation(location, EXTRINSIC, XYZ, DEGREES);
+        this.location = location;
+        this.x = translation.get(0);
+        this.y = translation.get(1);
+        this.z = translation.get(2);
+        this.roll = rotation.firstAngle;
+        this.pitch = rotation.secondAngle;
+        this.heading = rotation.thirdAngle;
+    }
+
+    /**
+     * This makes a view of a location that was combined from other views, such as from more than
+     * one target.
+     *
+     * @param x       The x position in millimeters.
+     * @param y       The y position in millimeters.
+     * @param z       The z position in millimeters.
+     * @param roll    The rotation about x in degrees.
+     * @param pitch   The rotation about y in degrees.
+     * @param heading The rotation about z in degrees.
+     */
+    public VuforiaPoseView(double x, double y, double z, double roll, double pitch, double heading) {
+        this.location = OpenGLMatrix.translation((float) x, (float) y, (float) z).multiplied(Orientation.getRotationMatrix(EXTRINSIC, XYZ, DEGREES, (float) roll, (float) pitch, (float) heading));
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.roll = roll;
+        this.pitch = pitch;
+        this.heading = heading;
+    }
+
+    /**
+     * @return True if the view has a location.
+     */
+    public boolean hasLocation() {
+        return this.location != null;
+    }
+}
@@ -7,7 +7,6 @@ import com.qualcomm.robotcore.hardware.DcMotor;
 
 import org.firstinspires.ftc.robotcore.external.ClassFactory;
 import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
-import org.firstinspires.ftc.robotcore.external.matrices.VectorF;
 import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
 import org.firstinspires.ftc.robotcore.external.navigation.VuforiaLocalizer;
 import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackable;
@@ -76,7 +75,8 @@ public class VuforiaSkyStoneNavigation extends LinearOpMode {
     private static final double hexaBotSpeed = -0.15;
     private static final double spqrBotSpeed = 0.5;
     private static final double speed = hexaBotSpeed;
-    double powerMultiplier;
+    double turnPower; //output of the heading controller, a fraction of speed
+    double settleMillis; //time the last setHeading took
     private String robotActivity;
 
     //Define constants for conversions
@@ -98,14 +98,30 @@ public class VuforiaSkyStoneNavigation extends LinearOpMode {
     private static final float quadField  = 36 * mmPerInch;
 
     //Constants for autonomous
-    private static final double mmTolerance = 100;
+    private static final double mmTolerance = 100; //loosest tolerance, used when the location is from one far away target
+    private static final double minimumMmTolerance = 30; //tightest tolerance, when several targets agree
+    private static final double toleranceDeviations = 2.5; //tolerance in standard deviations of the location
     private static final double radianTolerance = (Math.PI/180);
     private static final double angleTolerance = 10;
+    private static final long headingTimeout = 3000000000L; //longest a setHeading can take in nanoseconds
+
+    //Turns onto a heading from the Vuforia location, the output is scaled by speed
+    HeadingController headingController = vuforiaHeadingController();
+
+    static HeadingController vuforiaHeadingController() { //Vuforia only updates about 30 times a second and the setpoint doesn't move, so there is no feedforward and the gains are softer than for the IMU turns
+        HeadingController controller = new HeadingController();
+        controller.kV = 0;
+        controller.kA = 0;
+        controller.kP = 3;
+        controller.kI = 0.5;
+        controller.kD = 0; //the rate of turn from Vuforia is too noisy to steer on, it only decides when the turn has settled
+        controller.maxIntegral = 0.3;
+        return controller;
+    }
 
     // Class Members
-    public OpenGLMatrix lastLocation = null;
+    VuforiaPoseTracker tracker = null; //finds the location once per camera frame on its own thread
     private VuforiaLocalizer vuforia = null;
-    private boolean targetVisible = false;
     private float phoneXRotate    = 0;
     private float phoneYRotate    = 0;
     private float phoneZRotate    = 0;
@@ -121,78 +137,63 @@ public class VuforiaSkyStoneNavigation extends LinearOpMode {
 double desiredAngle = 0;
 double angleVariance = 0;
 
-String visibleTarget;
     List<VuforiaTrackable> allTrackables;
 
-    public void setHeading (double heading, double tolerance){ //called in gotoVuforiaPosistion, it in theory turns the robot onto the desired heading.
-        updateLastLocation();
-        powerMultiplier = 1.1;
-        double powerMultiplierModifier = -0.05;
-        if (tolerance == -1){
-            while (checkVuforiaPosistion("angle", heading, 0, 0, tolerance) && opModeIsActive()) {
-                robotActivity = "Turning Final";
-                howAngle(getHeading(TargetXmm, TargetYmm, TargetZmm));
-                powerMultiplier = powerMultiplier + powerMultiplierModifier;
-                if (powerMultiplier <= 0.3 || powerMultiplier >= 0.9) {
-                    powerMultiplierModifier = -powerMultiplierModifier / 2;
-                }
-                updateLastLocation();
-                Orientation rotation = Orientation.getOrientation(lastLocation, EXTRINSIC, XYZ, DEGREES);
-                if ((rotation.thirdAngle - heading) > 0) { //this is to make the turn direction the fastest, may not be functional
-                    this.leftFrontDrive.setPower(-speed * powerMultiplier);
-                    this.leftBackDrive.setPower(-speed * powerMultiplier);
-                    this.rightFrontDrive.setPower(speed * powerMultiplier);
-                    this.rightBackDrive.setPower(speed * powerMultiplier);
-                    /*this.robot.leftFrontDrive.setPower(-speed);
-                    this.robot.leftBackDrive.setPower(-speed);
-                    this.robot.rightFrontDrive.setPower(speed);
-                    this.robot.rightBackDrive.setPower(speed);*/
-                } else {
-                    this.leftFrontDrive.setPower(speed * powerMultiplier);
-                    this.leftBackDrive.setPower(speed * powerMultiplier);
-                    this.rightFrontDrive.setPower(-speed * powerMultiplier);
-                    this.rightBackDrive.setPower(-speed * powerMultiplier);
-                    /*this.robot.leftFrontDrive.setPower(speed);
-                    this.robot.leftBackDrive.setPower(speed);
-                    this.robot.rightFrontDrive.setPower(-speed);
-                    this.robot.rightBackDrive.setPower(-speed);*/
-                }
-            }
-        } else {
-            while (checkVuforiaPosistion("angle", getHeading(TargetXmm, TargetYmm, TargetZmm), 0, 0, tolerance) && opModeIsActive()) {
-                robotActivity = "Turning";
-                howAngle(getHeading(TargetXmm, TargetYmm, TargetZmm));
-                powerMultiplier = powerMultiplier + powerMultiplierModifier;
-                if (powerMultiplier <= 0.3 || powerMultiplier >= 0.9) {
-                    powerMultiplierModifier = -powerMultiplierModifier / 2;
-                }
-                updateLastLocation();
-                Orientation rotation = Orientation.getOrientation(lastLocation, EXTRINSIC, XYZ, DEGREES);
-                if ((rotation.thirdAngle - heading) > 0) { //this is to make the turn direction the fastest, may not be functional
-                    this.leftFrontDrive.setPower(-speed * powerMultiplier);
-                    this.leftBackDrive.setPower(-speed * powerMultiplier);
-                    this.rightFrontDrive.setPower(speed * powerMultiplier);
-                    this.rightBackDrive.setPower(speed * powerMultiplier);
-                    /*this.robot.leftFrontDrive.setPower(-speed);
-                    this.robot.leftBackDrive.setPower(-speed);
-                    this.robot.rightFrontDrive.setPower(speed);
-                    this.robot.rightBackDrive.setPower(speed);*/
-                } else {
-                    this.leftFrontDrive.setPower(speed * powerMultiplier);
-                    this.leftBackDrive.setPower(speed * powerMultiplier);
-                    this.rightFrontDrive.setPower(-speed * powerMultiplier);
-                    this.rightBackDrive.setPower(-speed * powerMultiplier);
-                    /*this.robot.leftFrontDrive.setPower(speed);
-                    this.robot.leftBackDrive.setPower(speed);
-                    this.robot.rightFrontDrive.setPower(-speed);
-                    this.robot.rightBackDrive.setPower(-speed);*/
+    //Telemetry is sent on its own thread this many times per second
+    private static final double telemetryRate = 8;
+    private TelemetryPublisher publisher = null;
+    private int visibleTargetSlot;
+    private int targetVisibleSlot;
+    private int positionSlot;
+    private int rotationSlot;
+    private int attitudeSlot;
+    private int distanceSlot;
+    private int activitySlot;
+    private int targetingSlot;
+    private int settleSlot;
+    private int skystoneSlot;
+    private int visionSlot;
+
+    VisionMonitor visionMonitor = null; //measures the frame processing of the detector and the tracker, and the CPU of the whole app with Vuforia
+    SkystoneDetector skystoneDetector = new SkystoneDetector(); //runs during init so the skystone is known at the start
+
+    public void setHeading (double heading, double tolerance){ //called in gotoVuforiaPosistion, turns the robot onto the desired heading with the heading controller until it settles or times out.
+        headingController.reset();
+        headingController.tolerance = tolerance == -1 ? toRadians(1) : toRadians(tolerance); //-1 is the final turn, which uses the tightest tolerance
+        robotActivity = tolerance == -1 ? "Turning Final" : "Turning";
+        long start = System.nanoTime();
+        long lastTime = 0;
+        turnPower = 0;
+        while (opModeIsActive() && System.nanoTime() - start < headingTimeout) {
+            VuforiaPoseTracker.Sample sample = updateLastLocation();
+            if (!sample.visible) { //don't steer on a location that isn't being seen
+                turnPower = 0;
+            } else if (sample.time != lastTime) { //only a new location changes the output, and the controller low-passes the rate of turn between locations
+                lastTime = sample.time;
+                turnPower = headingController.update(toRadians(heading), toRadians(sample.view.heading), sample.time);
+                howAngle(heading);
+                if (headingController.isSettled()) {
+                    break;
                 }
             }
+
+            //speed is the most power to turn with, and its sign is the direction of the motors on this robot
+            this.leftFrontDrive.setPower(speed * turnPower);
+            this.leftBackDrive.setPower(speed * turnPower);
+            this.rightFrontDrive.setPower(-speed * turnPower);
+            this.rightBackDrive.setPower(-speed * turnPower);
+            idle();
         }
+        turnPower = 0;
+        this.leftFrontDrive.setPower(0);
+        this.leftBackDrive.setPower(0);
+        this.rightFrontDrive.setPower(0);
+        this.rightBackDrive.setPower(0);
+        settleMillis = (System.nanoTime() - start) / 1e6;
     }
     
     public void goForward (double targetX, double targetY, double targetZ) { //called in gotoVuforiaPosistion, it in theory moves the robot forward until it hits the desired posistion.
-        if (checkVuforiaPosistion ("position", targetX, targetY, targetZ, mmTolerance) && opModeIsActive()) {
+        if (checkVuforiaPosistion ("position", targetX, targetY, targetZ, positionTolerance()) && opModeIsActive()) {
             robotActivity = "Driving Forward";
             this.leftFrontDrive.setPower(-speed*0.5);
             this.leftBackDrive.setPower(-speed*0.5);
@@ -203,19 +204,22 @@ String visibleTarget;
         }
     }
     
+    public double positionTolerance () { //the more targets agree on the location, the more certain it is, so the robot can stop closer to the target
+        double uncertainty = tracker.getSample().uncertainty;
+        return max(minimumMmTolerance, min(mmTolerance, toleranceDeviations * uncertainty));
+    }
+
     public boolean checkVuforiaPosistion (String type, double TargetAngleorX, double TargetY, double TargetZ, double tolerance) {
         type = type.toLowerCase(Locale.ENGLISH);
-        updateLastLocation();
-        VectorF translation = lastLocation.getTranslation();
-        Orientation rotation = Orientation.getOrientation(lastLocation, EXTRINSIC, XYZ, DEGREES);
+        VuforiaPoseView pose = updateLastLocation().view;
 
         //splitting the checks into bite size pieces in order to evaluate what is going wrong.
 
         double anglePlusTolerance = TargetAngleorX + tolerance;
         double angleMinusTolerance = TargetAngleorX - tolerance;
 
-        boolean angleOverTolerance = anglePlusTolerance < rotation.thirdAngle;
-        boolean angleUnderTolerance = angleMinusTolerance > rotation.thirdAngle;
+        boolean angleOverTolerance = anglePlusTolerance < pose.heading;
+        boolean angleUnderTolerance = angleMinusTolerance > pose.heading;
 
         boolean returnAngleB = angleOverTolerance || angleUnderTolerance;
 
@@ -224,10 +228,10 @@ String visibleTarget;
         double yPlusTolerance = TargetY + tolerance;
         double yMinusTolerance = TargetY - tolerance;
 
-        boolean xOverTolerance = xPlusTolerance < translation.get(0);
-        boolean xUnderTolerance = xMinusTolerance > translation.get(0);
-        boolean yOverTolerance = yPlusTolerance < translation.get(1);
-        boolean yUnderTolerance = yMinusTolerance > translation.get(1);
+        boolean xOverTolerance = xPlusTolerance < pose.x;
+        boolean xUnderTolerance = xMinusTolerance > pose.x;
+        boolean yOverTolerance = yPlusTolerance < pose.y;
+        boolean yUnderTolerance = yMinusTolerance > pose.y;
 
         boolean returnCoordsB = xOverTolerance || xUnderTolerance || yOverTolerance || yUnderTolerance;
 
@@ -246,13 +250,10 @@ String visibleTarget;
     }
 
     public double getHeading (double targetX, double targetY, double targetZ){
-        updateLastLocation();
-        VectorF translation = lastLocation.getTranslation();
-        double xLength = (targetX - translation.get(0)); //delta x
-        double yLength = (targetY - translation.get(1)); //delta y
-        double returnAngle = toDegrees(atan2(yLength, xLength));
-        updateLastLocation();
-        return returnAngle;
+        VuforiaPoseView pose = updateLastLocation().view;
+        double xLength = (targetX - pose.x); //delta x
+        double yLength = (targetY - pose.y); //delta y
+        return toDegrees(atan2(yLength, xLength));
     }
 
     public void gotoVuforiaPosistion(double TargetX, double TargetY, double TargetZ, double endAngle){ //Set a posistion and travel to it. Requires constant Vuforia updates, unsure if this has that (needs testing). This does not allow actions to be taken inside of this
@@ -262,13 +263,14 @@ String visibleTarget;
         targetCoordsmm = new double[]{TargetXmm, TargetYmm, TargetZmm};
         updateLastLocation ();
         robotActivity = "Checking if not in area";
-        while (checkVuforiaPosistion("position", TargetXmm, TargetYmm, TargetZmm,mmTolerance) && opModeIsActive()){ //see if already within target area, if is, then stop
+        while (checkVuforiaPosistion("position", TargetXmm, TargetYmm, TargetZmm, positionTolerance()) && opModeIsActive()){ //see if already within target area, if is, then stop
             desiredAngle = getHeading(TargetXmm, TargetYmm, TargetZmm);
             robotActivity = "Checking if oriented correctly, already checked and found it was not in the right place";
             if (checkVuforiaPosistion("angle", desiredAngle, 0, 0, angleTolerance)){ //see if orientation is facing desired point from current position CURRENT CODE IS TRASH (now it might not be)
                 setHeading(getHeading(TargetXmm, TargetYmm, TargetZmm), angleTolerance);
             }
             goForward (TargetXmm, TargetYmm, TargetZmm); //go straight until in area (not very good but is what we have for now)
+            idle();
         }
         boolean endAngleCheck = 180 >= endAngle && endAngle >= -180;
         double reducedAngleTolerance = angleTolerance/1.5;
@@ -289,55 +291,81 @@ String visibleTarget;
         }
     }
     
-    public void updateLastLocation () {
-        for (VuforiaTrackable trackable : allTrackables) {
-            if (((VuforiaTrackableDefaultListener) trackable.getListener()).isVisible()) {
-                visibleTarget = trackable.getName();
-                telemetry.addData("Visible Target", visibleTarget);
-                targetVisible = true;
-                // getUpdatedRobotLocation() will return null if no new information is available since
-                // the last time that call was made, or if the trackable is not currently visible.
-                OpenGLMatrix robotLocationTransform = ((VuforiaTrackableDefaultListener) trackable.getListener()).getUpdatedRobotLocation();
-                if (robotLocationTransform != null) {
-                    lastLocation = robotLocationTransform;
-                }
-                break;
-            } else {
-                targetVisible = false;
-            }
-        }
-        updateVuforiaTelemetry ();
+    public VuforiaPoseTracker.Sample updateLastLocation () { //the tracker checks the trackables once per frame, so this only reads the newest location
+        VuforiaPoseTracker.Sample pose = tracker.getSample();
+        updateVuforiaTelemetry(pose);
+        return pose;
     }
     
-    public void updateVuforiaTelemetry (){
+    public void startVuforiaTelemetry () { //slots are made once so the loops only write numbers, the publisher thread formats and sends them
+        publisher = new TelemetryPublisher(telemetry);
+        visibleTargetSlot = publisher.addTextSlot("Visible Target");
+        targetVisibleSlot = publisher.addTextSlot("Target is visible");
+        positionSlot = publisher.addSlot("Pos (in)", "{X, Y, Z} = %.1f, %.1f, %.1f", 3);
+        rotationSlot = publisher.addSlot("Rot (deg)", "{Roll, Pitch, Heading} = %.0f, %.0f, %.0f", 3);
+        attitudeSlot = publisher.addSlot("Attitude of robot (deg), target/variance/POWER", "{Target/Variance/POWER} = %.0f, %.0f, %.2f", 3);
+        distanceSlot = publisher.addSlot("Distance from target in (mm) X/Y/Direct", "{X, Y, Direct} = %.0f, %.0f, %.0f", 3);
+        activitySlot = publisher.addTextSlot("Robot is...");
+        targetingSlot = publisher.addSlot("Targeting (in)", "{X, Y, Z} = %.0f, %.0f, %.0f", 3);
+        settleSlot = publisher.addSlot("Last turn", "%.0f ms", 1);
+        skystoneSlot = publisher.addSlot("Skystone {Position, Contrast, ms}", "%.0f, %.2f, %.1f", 3);
+        visionSlot = publisher.addSlot("Vision {Our ms/frame, fps, App CPU %, App ms/frame}", "%.2f, %.1f, %.0f, %.1f", 4);
+        publisher.start(telemetryRate);
+    }
+
+    public void updateVuforiaTelemetry (VuforiaPoseTracker.Sample sample){
         // Provide feedback as to where the robot is located (if we know).
-        telemetry.addData("Target is visible", targetVisible);
-        if (targetVisible) {
+        if (publisher == null) {
+            return;
+        }
+        publisher.setText(targetVisibleSlot, Boolean.toString(sample.visible));
+        if (sample.visible) {
+            publisher.setText(visibleTargetSlot, sample.target);
+            VuforiaPoseView pose = sample.view; //taken apart once per new location, not per loop
+
             // express position (translation) of robot in inches.
-            VectorF translation = lastLocation.getTranslation();
-            telemetry.addData("Pos (in)", "{X, Y, Z} = %.1f, %.1f, %.1f",
-                    translation.get(0) / mmPerInch, translation.get(1) / mmPerInch, translation.get(2) / mmPerInch);
+            publisher.set(positionSlot, 0, pose.x / mmPerInch);
+            publisher.set(positionSlot, 1, pose.y / mmPerInch);
+            publisher.set(positionSlot, 2, pose.z / mmPerInch);
 
             // express the rotation of the robot in degrees.
-            Orientation rotation = Orientation.getOrientation(lastLocation, EXTRINSIC, XYZ, DEGREES);
-            telemetry.addData("Rot (deg)", "{Roll, Pitch, Heading} = %.0f, %.0f, %.0f", rotation.firstAngle, rotation.secondAngle, rotation.thirdAngle);
-            telemetry.addData("Attitude of robot (deg), target/variance/POWER", "{Target/Variance/POWER} = %.0f, %.0f, %.0f", desiredAngle, angleVariance, powerMultiplier);
-            telemetry.addData("Distance from target in (mm) X/Y/Direct", "{X, Y, Direct} = %.0f, %.0f, %.0f", xDistance, yDistance, distance);
-            telemetry.addData("Robot is...", robotActivity);
-            telemetry.addData("Targeting (in)", "{X, Y, Z} = %.0f, %.0f, %.0f", targetCoordsmm[0], targetCoordsmm[1], targetCoordsmm[2]);
+            publisher.set(rotationSlot, 0, pose.roll);
+            publisher.set(rotationSlot, 1, pose.pitch);
+            publisher.set(rotationSlot, 2, pose.heading);
+            publisher.set(attitudeSlot, 0, desiredAngle);
+            publisher.set(attitudeSlot, 1, angleVariance);
+            publisher.set(attitudeSlot, 2, turnPower);
+            publisher.set(settleSlot, 0, settleMillis);
+            publisher.set(distanceSlot, 0, xDistance);
+            publisher.set(distanceSlot, 1, yDistance);
+            publisher.set(distanceSlot, 2, distance);
+            publisher.setText(activitySlot, robotActivity);
+            publisher.set(targetingSlot, 0, targetCoordsmm[0]);
+            publisher.set(targetingSlot, 1, targetCoordsmm[1]);
+            publisher.set(targetingSlot, 2, targetCoordsmm[2]);
         }
         else {
-            telemetry.addData("Visible Target", "none");
+            publisher.setText(visibleTargetSlot, "none");
         }
-        telemetry.update();
+        updateVisionTelemetry();
+    }
+
+    public void updateVisionTelemetry (){ //our frame processing alone, then the whole app including Vuforia's tracking, as % of one core and per frame
+        if (publisher == null || visionMonitor == null) {
+            return;
+        }
+        visionMonitor.sample(System.nanoTime());
+        publisher.set(visionSlot, 0, visionMonitor.getCpuPerFrame() / 1e6);
+        publisher.set(visionSlot, 1, visionMonitor.getFrameRate());
+        publisher.set(visionSlot, 2, visionMonitor.getProcessLoad() * 100);
+        publisher.set(visionSlot, 3, visionMonitor.getProcessCpuPerFrame() / 1e6);
     }
 
     public void howClose (double targetX, double targetY, double targetZ){
-        updateLastLocation();
-        VectorF translation = lastLocation.getTranslation();
+        VuforiaPoseView pose = updateLastLocation().view;
 
-        double deltaX = abs((targetX - translation.get(0)));
-        double deltaY = abs((targetY - translation.get(1)));
+        double deltaX = abs((targetX - pose.x));
+        double deltaY = abs((targetY - pose.y));
 
         double deltaX2 = pow(deltaX, 2);
         double deltaY2 = pow(deltaY, 2);
@@ -347,18 +375,13 @@ String visibleTarget;
         xDistance = deltaX;
         yDistance = deltaY;
         distance = crowFlies;
-        updateLastLocation();
     }
 
 public void howAngle (double targetAngle) {
 
-updateLastLocation();
-Orientation rotation = Orientation.getOrientation(lastLocation, EXTRINSIC, XYZ, DEGREES);
-double variance = abs((rotation.thirdAngle - targetAngle));
+double variance = abs((updateLastLocation().view.heading - targetAngle));
 
 angleVariance = variance;
-
-updateLastLocation();
 }
 
 public void getSkystoneAcross(){
@@ -726,6 +749,18 @@ public void getSkystoneAcross(){
             ((VuforiaTrackableDefaultListener) trackable.getListener()).setPhoneInformation(robotFromCamera, parameters.cameraDirection);
         }
 
+        startVuforiaTelemetry();
+        visionMonitor = new VisionMonitor();
+        skystoneDetector.setMonitor(visionMonitor);
+        skystoneDetector.start(vuforia);
+        while (!isStarted() && !isStopRequested()) { //show what the detector sees until start is pressed
+            publisher.set(skystoneSlot, 0, skystoneDetector.getPosition());
+            publisher.set(skystoneSlot, 1, skystoneDetector.getContrast());
+            publisher.set(skystoneSlot, 2, skystoneDetector.getProcessNanos() / 1e6);
+            updateVisionTelemetry();
+            idle();
+        }
+
         // WARNING:
         // In this sample, we do not wait for PLAY to be pressed.  Target Tracking is started immediately when INIT is pressed.
         // This sequence is used to enable the new remote DS Camera Preview feature to be used with this sample.
@@ -733,27 +768,29 @@ public void getSkystoneAcross(){
         // To restore the normal opmode structure, just un-comment the following line:
 
         waitForStart();
+        skystoneDetector.stop(); //the tracker takes the frames from here on, getPosition() keeps the position found during init
 
         // Note: To use the remote camera preview:
         // AFTER you hit Init on the Driver Station, use the "options menu" to select "Camera Stream"
         // Tap the preview window to receive a fresh image.
         targetsSkyStone.activate();
+        tracker = new VuforiaPoseTracker(vuforia, allTrackables);
+        tracker.setMonitor(visionMonitor);
+        tracker.start();
         if(!isStopRequested() && opModeIsActive()) {
-            for (int i=0; !isStopRequested() && opModeIsActive() && i<10; i++) {
-                updateLastLocation();
-            }
-            if (visibleTarget == "Stone Target"){
+            if ("Stone Target".equals(updateLastLocation().target)){
 
             }
             while (!isStopRequested() && opModeIsActive()) {
                 // check all the trackable targets to see which one (if any) is visible.
-                updateLastLocation();// Provide feedback as to where the robot is located (if we know).
-                if (targetVisible) {
+                if (updateLastLocation().visible) { // Provide feedback as to where the robot is located (if we know).
                     gotoVuforiaPosistion(-7, 0, 0, 0);
                 }
+                idle();
             }
         }
         // Disable Tracking when we are done;
+        tracker.stop();
         targetsSkyStone.deactivate();
     }
 }
\ No newline at end of file
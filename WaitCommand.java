@@ -0,0 +1,41 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * This class waits for an amount of time without blocking the other commands. It is used in place
+ * of sleep() inside a sequence.
+ *
+ * @author Arkin Solomon
+ */
+public class WaitCommand implements Command {
+
+    private final long duration;
+    private long end = 0;
+    private boolean finished = false;
+
+    /**
+     * @param milliseconds The amount of time to wait.
+     */
+    public WaitCommand(long milliseconds) {
+        this.duration = milliseconds * 1000000;
+    }
+
+    @Override
+    public void start(long now) {
+        this.end = now + this.duration;
+        this.finished = this.duration <= 0;
+    }
+
+    @Override
+    public void update(long now) {
+        this.finished = now >= this.end;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    @Override
+    public void end() {
+    }
+}
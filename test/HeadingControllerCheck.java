@@ -0,0 +1,87 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * This class checks that a turn onto a Vuforia heading settles before the timeout of setHeading()
+ * in VuforiaSkyStoneNavigation. The robot is a simple model that turns at a rate proportional to
+ * the turning power, and the controller only sees headings with the frame rate, latency and noise
+ * of Vuforia. Each case is run with many random seeds.
+ *
+ * Run the main method on a desktop. It throws an AssertionError if a check fails.
+ *
+ * @author Arkin Solomon
+ */
+public class HeadingControllerCheck {
+
+    //Vuforia finds a location about every 33 ms, 50 ms after the frame was taken
+    private static final long framePeriod = 33000000L;
+    private static final long latency = 50000000L;
+
+    //Same as setHeading() in VuforiaSkyStoneNavigation
+    private static final long timeout = 3000000000L;
+    private static final double tolerance = Math.toRadians(10);
+
+    //Time constant of the robot reaching the rate of turn of a power, in seconds
+    private static final double response = 0.1;
+
+    /**
+     * This method turns the model onto a heading of zero.
+     *
+     * @param start    The heading the robot starts at in radians.
+     * @param maxRate  The rate of turn at full turning power in radians per second.
+     * @param noise    The standard deviation of the noise on each heading in radians.
+     * @param seed     The seed of the noise.
+     * @return The time it took to settle in nanoseconds, or -1 if it didn't settle before the
+     * timeout.
+     */
+    static long turn(double start, double maxRate, double noise, long seed) {
+        Random random = new Random(seed);
+        HeadingController controller = VuforiaSkyStoneNavigation.vuforiaHeadingController();
+        controller.tolerance = tolerance;
+        ArrayDeque<double[]> frames = new ArrayDeque<double[]>();
+        double heading = start;
+        double rate = 0;
+        double power = 0;
+        long step = 1000000L;
+        for (long now = step; now <= timeout; now += step) {
+            rate += (maxRate * power - rate) * (step / 1e9) / response;
+            heading += rate * step / 1e9;
+            if (now % framePeriod < step) frames.add(new double[] {now, heading + noise * random.nextGaussian()});
+            if (!frames.isEmpty() && now - frames.peek()[0] >= latency) {
+                double[] frame = frames.poll();
+                power = controller.update(0, frame[1], (long) frame[0]);
+                if (controller.isSettled()) {
+                    check(Math.abs(heading) <= tolerance + 3 * noise, "Settled " + Math.toDegrees(heading) + " degrees away");
+                    return now;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    public static void main(String[] args) {
+        double[] starts = {15, 30, 60, 90, -45};
+        double[] maxRates = {54, 100, 150};
+        double[] noises = {0.3, 0.5, 1};
+        for (double maxRate : maxRates) {
+            for (double noise : noises) {
+                long worst = 0;
+                for (double start : starts) {
+                    for (long seed = 1; seed <= 20; seed++) {
+                        long time = turn(Math.toRadians(start), Math.toRadians(maxRate), Math.toRadians(noise), seed);
+                        check(time >= 0, String.format("A %.0f degree turn at %.0f deg/s with %.1f degrees of noise didn't settle (seed %d)", start, maxRate, noise, seed));
+                        worst = Math.max(worst, time);
+                    }
+                }
+                System.out.println(String.format("%.0f deg/s, %.1f degrees of noise: settled in at most %.0f ms", maxRate, noise, worst / 1e6));
+            }
+        }
+        System.out.println("All turns settled before the timeout");
+    }
+}
@@ -0,0 +1,94 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * This class checks PoseFusion on a simulated 30 second drive. The odometry reads 5% too far and
+ * turns 4% too much. The camera sees the robot in every other 5 seconds at about 30 frames a
+ * second, with 25 mm of noise, and each fix arrives 150 ms late. A fix 3 m away from the robot is
+ * added every 2.5 seconds.
+ *
+ * Run the main method on a desktop. It prints how far the odometry and the fused pose are from the
+ * true pose, and throws an AssertionError if a check fails.
+ *
+ * @author Arkin Solomon
+ */
+public class PoseFusionCheck {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        PoseFusion fusion = new PoseFusion();
+        fusion.setPose(0, 0, 0);
+        fusion.update(new Pose(0, 0, 0, 0));
+
+        //Time between refreshes in nanoseconds, and how late the camera is
+        long period = 5000000;
+        long latency = 150000000;
+
+        double x = 0, y = 0, heading = 0;
+        double odometryX = 0, odometryY = 0, odometryHeading = 0;
+        double odometryError = 0, fusedError = 0, largestStep = 0, largestSeenError = 0;
+        int fixes = 0, outliers = 0;
+        ArrayDeque<Pose> pending = new ArrayDeque<Pose>();
+        Pose last = null;
+        int steps = 6000;
+        for (int i = 0; i < steps; i++) {
+            long time = (i + 1) * period;
+            double seconds = i * period / 1e9;
+            boolean seen = ((int) (seconds / 5)) % 2 == 0;
+
+            //Drive at 400 mm/s while weaving
+            double distance = 400 * period / 1e9;
+            double turn = 0.4 * Math.sin(seconds * 0.5) * period / 1e9;
+            x += distance * Math.cos(heading + turn / 2);
+            y += distance * Math.sin(heading + turn / 2);
+            heading += turn;
+            odometryX += distance * 1.05 * Math.cos(odometryHeading + turn * 1.04 / 2);
+            odometryY += distance * 1.05 * Math.sin(odometryHeading + turn * 1.04 / 2);
+            odometryHeading += turn * 1.04;
+
+            if (i % 7 == 0 && seen) {
+                pending.add(new Pose(x + random.nextGaussian() * 25, y + random.nextGaussian() * 25, heading + random.nextGaussian() * 0.03, time));
+                fixes++;
+            }
+            while (!pending.isEmpty() && pending.peek().time <= time - latency) {
+                fusion.addFix(pending.poll());
+            }
+            if (i % 500 == 0) {
+                fusion.addFix(new Pose(x + 3000, y, heading, time - 100000000));
+                outliers++;
+            }
+            fusion.update(new Pose(odometryX, odometryY, Pose.normalize(odometryHeading), time));
+
+            Pose pose = fusion.getPose();
+            double error = Math.hypot(pose.x - x, pose.y - y);
+            if (last != null) largestStep = Math.max(largestStep, Math.hypot(pose.x - last.x, pose.y - last.y));
+            last = pose;
+            odometryError += Math.hypot(odometryX - x, odometryY - y);
+            fusedError += error;
+
+            //Once the camera has seen the robot for a second, the pose should stay close to it
+            if (seen && seconds % 5 >= 1) largestSeenError = Math.max(largestSeenError, error);
+            if (i % 1000 == 999) {
+                System.out.println(String.format("%.0f s: odometry %.0f mm off, fused %.0f mm off, uncertainty %.0f mm", seconds, Math.hypot(odometryX - x, odometryY - y), error, fusion.getPositionUncertainty()));
+            }
+        }
+        odometryError /= steps;
+        fusedError /= steps;
+        System.out.println(String.format("Mean error: odometry %.0f mm, fused %.0f mm", odometryError, fusedError));
+        System.out.println(String.format("Largest error while seen %.1f mm, largest step %.1f mm", largestSeenError, largestStep));
+        System.out.println(String.format("%d fixes applied, %d rejected", fusion.getAppliedFixes(), fusion.getRejectedFixes()));
+
+        check(fusedError < odometryError / 4, "The fused pose isn't much closer than the odometry");
+        check(largestSeenError < 50, "The fused pose is far from the robot while the camera sees it");
+        check(largestStep < 100, "The fused pose jumped");
+        check(fusion.getAppliedFixes() == fixes, "Not every fix from the camera was applied");
+        check(fusion.getRejectedFixes() == outliers, "Not every fix far from the robot was rejected");
+        System.out.println("All checks passed");
+    }
+}
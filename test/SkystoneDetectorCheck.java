@@ -0,0 +1,187 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.vuforia.PIXEL_FORMAT;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class checks that SkystoneDetector finds the skystone in each position. The frames are made
+ * here: a grey background with a row of three yellow stones across the region the detector looks
+ * at, one of which has a dark label, with noise on every pixel. They are made in both formats the
+ * detector takes, in dim light, with the stones off center, and with no skystone at all.
+ *
+ * Frames recorded on the robot with SkystoneDetector.recordFolder can be checked too, by passing the
+ * folder they are in. The name of each recorded frame has to start with the position of the
+ * skystone in it, left, center, right or none, for example "left-frame120.bin".
+ *
+ * Run the main method on a desktop. It throws an AssertionError if a check fails.
+ *
+ * @author Arkin Solomon
+ */
+public class SkystoneDetectorCheck {
+
+    private static final int width = 640;
+    private static final int height = 360;
+
+    private static final String[] names = {"left", "center", "right"};
+
+    private static final Random random = new Random(5);
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    private static String name(int position) {
+        return position == SkystoneDetector.UNKNOWN ? "none" : names[position];
+    }
+
+    /**
+     * This method makes a frame of the three stones.
+     *
+     * @param skystone   The position of the skystone, or UNKNOWN for three plain stones.
+     * @param format     PIXEL_FORMAT.RGB565 or PIXEL_FORMAT.GRAYSCALE.
+     * @param brightness The fraction of full light.
+     * @param shift      How far the stones are to the right of the center, as a fraction of the
+     *                   width.
+     * @return The pixels, with rows of width times the bytes per pixel.
+     */
+    static byte[] frame(int skystone, int format, double brightness, double shift) {
+        int bytesPerPixel = format == PIXEL_FORMAT.RGB565 ? 2 : 1;
+        int stride = width * bytesPerPixel;
+        byte[] pixels = new byte[stride * height];
+        double left = (0.1 + shift) * width;
+        double stone = 0.8 * width / 3;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = 90, green = 90, blue = 90;
+                if (y > height * 0.42 && y < height * 0.75 && x > left && x < left + 3 * stone) {
+                    int third = (int) ((x - left) / stone);
+                    double across = (x - left) % stone;
+                    if (third == skystone && y > height * 0.5 && y < height * 0.68 && across > 20 && across < stone - 20) {
+                        red = 25;
+                        green = 25;
+                        blue = 20;
+                    } else {
+                        red = 230;
+                        green = 200;
+                        blue = 30;
+                    }
+                }
+                red = noisy(red, brightness);
+                green = noisy(green, brightness);
+                blue = noisy(blue, brightness);
+                if (bytesPerPixel == 2) {
+                    int pixel = (red >> 3) << 11 | (green >> 2) << 5 | blue >> 3;
+                    pixels[y * stride + x * 2] = (byte) pixel;
+                    pixels[y * stride + x * 2 + 1] = (byte) (pixel >> 8);
+                } else {
+                    pixels[y * stride + x] = (byte) ((77 * red + 150 * green + 29 * blue) >> 8);
+                }
+            }
+        }
+        return pixels;
+    }
+
+    private static int noisy(int value, double brightness) {
+        return Math.max(0, Math.min(255, (int) (value * brightness + random.nextGaussian() * 20)));
+    }
+
+    /**
+     * This method runs a new detector on frames of the skystone in one position, and checks that
+     * every frame and the vote find it.
+     */
+    static void checkPosition(int skystone, int format, double brightness, double shift, String description) {
+        SkystoneDetector detector = new SkystoneDetector();
+        int stride = width * (format == PIXEL_FORMAT.RGB565 ? 2 : 1);
+        for (int i = 0; i < 8; i++) {
+            int result = detector.process(ByteBuffer.wrap(frame(skystone, format, brightness, shift)), width, height, stride, format);
+            check(result == skystone, description + ": found " + name(result) + " instead of " + name(skystone) + " with contrast " + detector.getContrast());
+        }
+        check(detector.getPosition() == skystone, description + ": voted for " + name(detector.getPosition()) + " instead of " + name(skystone));
+        System.out.println(String.format("%s, %s: contrast %.2f", description, name(skystone), detector.getContrast()));
+    }
+
+    /**
+     * This method checks that the vote only changes once most of the last frames see the skystone
+     * somewhere else.
+     */
+    static void checkVote() {
+        SkystoneDetector detector = new SkystoneDetector();
+        int format = PIXEL_FORMAT.RGB565;
+        ByteBuffer left = ByteBuffer.wrap(frame(SkystoneDetector.LEFT, format, 1, 0));
+        ByteBuffer right = ByteBuffer.wrap(frame(SkystoneDetector.RIGHT, format, 1, 0));
+        for (int i = 0; i < 8; i++) {
+            detector.process(left, width, height, width * 2, format);
+        }
+        for (int i = 0; i < 3; i++) {
+            detector.process(right, width, height, width * 2, format);
+            check(detector.getPosition() == SkystoneDetector.LEFT, "The vote changed after " + (i + 1) + " frames");
+        }
+        for (int i = 0; i < 2; i++) {
+            detector.process(right, width, height, width * 2, format);
+        }
+        check(detector.getPosition() == SkystoneDetector.RIGHT, "The vote didn't change after most of the frames changed");
+        System.out.println("Vote: changed after 5 of 8 frames");
+    }
+
+    /**
+     * This method runs the detector on the recorded frames in a folder.
+     *
+     * @return The amount of frames that were checked.
+     */
+    static int checkRecorded(File folder) throws IOException {
+        File[] files = folder.listFiles();
+        check(files != null, folder + " isn't a folder");
+        Arrays.sort(files);
+        int checked = 0;
+        for (File file : files) {
+            if (!file.getName().endsWith(".bin")) continue;
+            int expected = -2;
+            if (file.getName().startsWith("none")) expected = SkystoneDetector.UNKNOWN;
+            for (int i = 0; i < names.length; i++) {
+                if (file.getName().startsWith(names[i])) expected = i;
+            }
+            check(expected != -2, file.getName() + " doesn't start with the position of the skystone");
+
+            DataInputStream input = new DataInputStream(new FileInputStream(file));
+            int frameWidth, frameHeight, stride, format;
+            byte[] pixels;
+            try {
+                frameWidth = input.readInt();
+                frameHeight = input.readInt();
+                stride = input.readInt();
+                format = input.readInt();
+                pixels = new byte[stride * frameHeight];
+                input.readFully(pixels);
+            } finally {
+                input.close();
+            }
+            SkystoneDetector detector = new SkystoneDetector();
+            int result = detector.process(ByteBuffer.wrap(pixels), frameWidth, frameHeight, stride, format);
+            check(result == expected, file.getName() + ": found " + name(result) + " with contrast " + detector.getContrast());
+            System.out.println(String.format("%s: %s, contrast %.2f", file.getName(), name(result), detector.getContrast()));
+            checked++;
+        }
+        return checked;
+    }
+
+    public static void main(String[] args) throws IOException {
+        for (int position = SkystoneDetector.LEFT; position <= SkystoneDetector.RIGHT; position++) {
+            checkPosition(position, PIXEL_FORMAT.RGB565, 1, 0, "RGB565");
+            checkPosition(position, PIXEL_FORMAT.GRAYSCALE, 1, 0, "Grayscale");
+            checkPosition(position, PIXEL_FORMAT.RGB565, 0.4, 0, "Dim light");
+            checkPosition(position, PIXEL_FORMAT.RGB565, 1, -0.05, "5% to the left");
+            checkPosition(position, PIXEL_FORMAT.RGB565, 1, 0.05, "5% to the right");
+        }
+        checkPosition(SkystoneDetector.UNKNOWN, PIXEL_FORMAT.RGB565, 1, 0, "No skystone");
+        checkVote();
+        if (args.length > 0) System.out.println(checkRecorded(new File(args[0])) + " recorded frames checked");
+        System.out.println("All checks passed");
+    }
+}
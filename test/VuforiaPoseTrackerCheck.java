@@ -0,0 +1,72 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.Random;
+
+/**
+ * This class checks that VuforiaPoseTracker combines the locations from several targets into one
+ * that is better than the location from the nearest target alone, and that it leaves out a target
+ * that gives a location far from the others. The locations are made up: the robot stands still,
+ * and each target gives a location with noise that grows with its distance, from 800 mm for the
+ * first target to 2000 mm for the fourth.
+ *
+ * Run the main method on a desktop. It throws an AssertionError if a check fails.
+ *
+ * @author Arkin Solomon
+ */
+public class VuforiaPoseTrackerCheck {
+
+    //Where the robot is
+    private static final double x = 500;
+    private static final double y = 200;
+
+    private static final int frames = 2000;
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /**
+     * This method combines many frames with some of the targets in view.
+     *
+     * @param targets The amount of targets in view.
+     * @param outlier True to move the location from the second target 1 m away every tenth frame.
+     * @return The RMS error of the combined location in millimeters.
+     */
+    static double run(int targets, boolean outlier) {
+        Random random = new Random(3);
+        VuforiaPoseTracker tracker = new VuforiaPoseTracker(null, 4);
+        VuforiaPoseView[] views = new VuforiaPoseView[targets];
+        double[] weights = new double[targets];
+        double squares = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            boolean bad = outlier && frame % 10 == 0;
+            for (int i = 0; i < targets; i++) {
+                double distance = 800 + 400 * i;
+                double scale = distance / tracker.referenceDistance;
+                double deviation = tracker.positionNoise * scale;
+                double offset = bad && i == 1 ? 1000 : 0;
+                views[i] = new VuforiaPoseView(x + offset + deviation * random.nextGaussian(), y + deviation * random.nextGaussian(), 0, 0, 0, tracker.headingNoise * scale * random.nextGaussian());
+                weights[i] = 1 / (scale * scale);
+            }
+            VuforiaPoseTracker.Sample sample = tracker.combine(views, weights, targets, frame);
+            double error = Math.hypot(sample.view.x - x, sample.view.y - y);
+            squares += error * error;
+            if (bad) {
+                check(sample.targets < targets, "The location 1 m away was combined in frame " + frame);
+                check(error < 150, "The location 1 m away moved the combined one " + error + " mm");
+            }
+        }
+        double rms = Math.sqrt(squares / frames);
+        System.out.println(String.format("%d targets%s: RMS error %.1f mm, %d locations left out", targets, outlier ? " with an outlier" : "", rms, tracker.getRejected()));
+        return rms;
+    }
+
+    public static void main(String[] args) {
+        double one = run(1, false);
+        double four = run(4, false);
+        run(3, true);
+        run(4, true);
+        check(four < one * 0.85, "Four targets aren't better than one");
+        System.out.println("All checks passed");
+    }
+}